@@ -42,8 +42,8 @@ public class BindingParser {
   /** Value transform for negating a boolean value. */
   public static ValueTransform negateBoolean;
 
-  // Initialize value transformers.
-  {
+  // Initialize value transformers once, parsers run on concurrent compiles.
+  static {
     negateBoolean = new ValueTransform() {
       @Override
       public Object transformValue(Object value, Object transArg) {
@@ -0,0 +1,477 @@
+package com.hello.uxml.tools.codegen;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.hello.uxml.tools.codegen.emit.Checksums;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Persistent record of previous compiles used to skip up-to-date markup files.
+ *
+ * <p>Each entry is keyed on source path and compiler configuration and holds
+ * the content hash of the source, of every file it imported and of the
+ * generated output. A source is up to date when none of those hashes changed,
+ * so an output that was edited or removed is generated again. File length and
+ * modification time are compared first so unchanged files are not re-read.
+ *
+ * <p>Imports of every compiled source are also kept, whether or not the
+ * compile succeeded, so sources can be rebuilt when a file they import
+ * changes or appears.
+ *
+ * <p>The cache is safe for concurrent compiles. Files are hashed outside the
+ * cache lock so parallel compiles don't wait on each other's reads.
+ *
+ * @author ferhat
+ */
+public class BuildCache {
+
+  /** Version of compiler output. Bump to invalidate caches on disk. */
+  private static final String CACHE_VERSION = "3";
+  private static final String HEADER = "# uxml build cache v" + CACHE_VERSION;
+  private static final String ENTRY_RECORD = "entry";
+  private static final String DEPENDENCY_RECORD = "dep";
+  private static final String IMPORT_RECORD = "import";
+  private static final String SEPARATOR = "\t";
+
+  /** File cache is loaded from and saved to. */
+  private final File cacheFile;
+
+  /** Maps configuration key + source path to entry. */
+  private final Map<String, Entry> entries = Maps.newHashMap();
+
+  /** Maps source to files it imported or tried to import on last compile. */
+  private final Map<File, List<File>> imports = Maps.newHashMap();
+
+  /** Stamps of files read during this run, shared by all sources importing them. */
+  private final ConcurrentMap<File, FileStamp> currentStamps = Maps.newConcurrentMap();
+
+  private boolean modified = false;
+  private int hitCount = 0;
+  private int missCount = 0;
+
+  /**
+   * Creates build cache backed by file.
+   */
+  public BuildCache(File cacheFile) {
+    this.cacheFile = cacheFile;
+  }
+
+  /**
+   * Reads cache file. A missing or unreadable cache is treated as empty.
+   */
+  public synchronized void load() {
+    entries.clear();
+    imports.clear();
+    if (cacheFile == null || !cacheFile.exists()) {
+      return;
+    }
+    BufferedReader reader = null;
+    try {
+      reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile),
+          "UTF-8"));
+      String line = reader.readLine();
+      if (!HEADER.equals(line)) {
+        return; // Different cache version, start clean.
+      }
+      Entry entry = null;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split(SEPARATOR);
+        if (fields[0].equals(ENTRY_RECORD) && fields.length == 10) {
+          FileStamp source = new FileStamp(new File(fields[2]), Long.parseLong(fields[3]),
+              Long.parseLong(fields[4]), fields[5]);
+          FileStamp output = new FileStamp(new File(fields[6]), Long.parseLong(fields[7]),
+              Long.parseLong(fields[8]), fields[9]);
+          entry = new Entry(fields[1], source, output);
+          entries.put(entry.getKey(), entry);
+        } else if (fields[0].equals(DEPENDENCY_RECORD) && fields.length == 5 && entry != null) {
+          entry.dependencies.add(new FileStamp(new File(fields[1]), Long.parseLong(fields[2]),
+              Long.parseLong(fields[3]), fields[4]));
+        } else if (fields[0].equals(IMPORT_RECORD) && fields.length == 3) {
+          File source = new File(fields[1]);
+          List<File> sourceImports = imports.get(source);
+          if (sourceImports == null) {
+            sourceImports = Lists.newArrayList();
+            imports.put(source, sourceImports);
+          }
+          sourceImports.add(new File(fields[2]));
+        } else {
+          entries.clear(); // Corrupt cache.
+          imports.clear();
+          return;
+        }
+      }
+    } catch (IOException e) {
+      entries.clear();
+      imports.clear();
+    } catch (NumberFormatException e) {
+      entries.clear();
+      imports.clear();
+    } finally {
+      Closeables.closeQuietly(reader);
+    }
+  }
+
+  /**
+   * Writes cache file if entries changed since load.
+   */
+  public synchronized void save() throws IOException {
+    if (!modified || cacheFile == null) {
+      return;
+    }
+    File parent = cacheFile.getParentFile();
+    if (parent != null && !parent.exists()) {
+      parent.mkdirs();
+    }
+    Writer writer = new OutputStreamWriter(new FileOutputStream(cacheFile), "UTF-8");
+    try {
+      writer.write(HEADER);
+      writer.write('\n');
+      for (Entry entry : entries.values()) {
+        writer.write(ENTRY_RECORD + SEPARATOR + entry.configKey + SEPARATOR);
+        writeStamp(writer, entry.source);
+        writer.write(SEPARATOR);
+        writeStamp(writer, entry.output);
+        writer.write('\n');
+        for (FileStamp dependency : entry.dependencies) {
+          writer.write(DEPENDENCY_RECORD + SEPARATOR);
+          writeStamp(writer, dependency);
+          writer.write('\n');
+        }
+      }
+      for (Map.Entry<File, List<File>> sourceImports : imports.entrySet()) {
+        for (File file : sourceImports.getValue()) {
+          writer.write(IMPORT_RECORD + SEPARATOR + sourceImports.getKey().getPath() + SEPARATOR
+              + file.getPath() + '\n');
+        }
+      }
+    } finally {
+      writer.close();
+    }
+    modified = false;
+  }
+
+  private static void writeStamp(Writer writer, FileStamp stamp) throws IOException {
+    writer.write(stamp.file.getPath() + SEPARATOR + stamp.length + SEPARATOR
+        + stamp.lastModified + SEPARATOR + stamp.md5);
+  }
+
+  /**
+   * Returns cache entry if source compiled with configKey is up to date,
+   * otherwise null.
+   */
+  public Entry getUpToDate(String configKey, File source) {
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(configKey + SEPARATOR + source.getPath());
+    }
+    boolean upToDate = (entry != null) && isCurrent(entry.source) && isCurrent(entry.output);
+    if (upToDate) {
+      for (FileStamp dependency : entry.dependencies) {
+        if (!isCurrent(dependency)) {
+          upToDate = false;
+          break;
+        }
+      }
+    }
+    synchronized (this) {
+      if (upToDate) {
+        ++hitCount;
+      } else {
+        ++missCount;
+      }
+    }
+    return upToDate ? entry : null;
+  }
+
+  /**
+   * Records a successful compile.
+   *
+   * @param configKey key returned by {@link #getConfigKey}
+   * @param source compiled markup file
+   * @param dependencies files imported while compiling source
+   * @param output generated file
+   * @param outputMd5 md5 of generated file
+   */
+  public void update(String configKey, File source, List<File> dependencies,
+      File output, String outputMd5) {
+    Entry entry = null;
+    try {
+      // Output was just written, replace any stamp read before the compile.
+      FileStamp outputStamp = new FileStamp(output, output.length(), output.lastModified(),
+          outputMd5);
+      currentStamps.put(output, outputStamp);
+      entry = new Entry(configKey, stamp(source), outputStamp);
+      for (File dependency : dependencies) {
+        entry.dependencies.add(stamp(normalize(dependency)));
+      }
+    } catch (IOException e) {
+      // Source or import vanished after compile, force rebuild next time.
+      entry = null;
+    }
+    synchronized (this) {
+      if (entry != null) {
+        entries.put(entry.getKey(), entry);
+      } else {
+        entries.remove(configKey + SEPARATOR + source.getPath());
+      }
+      modified = true;
+    }
+  }
+
+  /**
+   * Records files a source imported or searched for on its last compile,
+   * whether or not the compile succeeded.
+   */
+  public synchronized void recordImports(File source, List<File> files) {
+    List<File> sourceImports = Lists.newArrayList();
+    for (File file : files) {
+      File normalized = normalize(file);
+      if (!sourceImports.contains(normalized)) {
+        sourceImports.add(normalized);
+      }
+    }
+    List<File> previous = sourceImports.isEmpty() ? imports.remove(source)
+        : imports.put(source, sourceImports);
+    if ((previous == null) ? !sourceImports.isEmpty() : !previous.equals(sourceImports)) {
+      modified = true;
+    }
+  }
+
+  /**
+   * Removes entries for a source file.
+   *
+   * @return outputs that were generated for source.
+   */
+  public synchronized List<File> remove(File source) {
+    String suffix = SEPARATOR + source.getPath();
+    List<String> keys = Lists.newArrayList();
+    for (String key : entries.keySet()) {
+      if (key.endsWith(suffix)) {
+        keys.add(key);
+      }
+    }
+    List<File> outputs = Lists.newArrayList();
+    for (String key : keys) {
+      outputs.add(entries.remove(key).output.file);
+    }
+    modified |= !keys.isEmpty();
+    modified |= (imports.remove(source) != null);
+    return outputs;
+  }
+
+  /**
+   * Returns sources that imported or searched for file when they were last
+   * compiled.
+   */
+  public synchronized List<File> getDependents(File file) {
+    File dependency = normalize(file);
+    List<File> dependents = Lists.newArrayList();
+    for (Map.Entry<File, List<File>> sourceImports : imports.entrySet()) {
+      if (sourceImports.getValue().contains(dependency)
+          && !dependents.contains(sourceImports.getKey())) {
+        dependents.add(sourceImports.getKey());
+      }
+    }
+    for (Entry entry : entries.values()) {
+      for (FileStamp stamp : entry.dependencies) {
+        if (stamp.file.equals(dependency)) {
+          if (!dependents.contains(entry.source.file)) {
+            dependents.add(entry.source.file);
+          }
+          break;
+        }
+      }
+    }
+    return dependents;
+  }
+
+  /**
+   * Returns canonical file so imports reached through different relative
+   * paths compare equal.
+   */
+  private static File normalize(File file) {
+    try {
+      return file.getCanonicalFile();
+    } catch (IOException e) {
+      return file.getAbsoluteFile();
+    }
+  }
+
+  /**
+   * Forgets stamps computed during the current run so the next check re-reads
+   * modified files.
+   */
+  public void resetStamps() {
+    currentStamps.clear();
+  }
+
+  /** Returns number of up-to-date sources found. */
+  public synchronized int getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns number of sources that needed compilation. */
+  public synchronized int getMissCount() {
+    return missCount;
+  }
+
+  private boolean isCurrent(FileStamp recorded) {
+    try {
+      FileStamp current = stamp(recorded.file, recorded);
+      return current.md5.equals(recorded.md5);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private FileStamp stamp(File file) throws IOException {
+    return stamp(file, null);
+  }
+
+  /**
+   * Returns stamp of file. The content hash of a previous stamp is reused if
+   * length and modification time match. Called without holding the cache
+   * lock, the first stamp published for a file wins.
+   */
+  private FileStamp stamp(File file, FileStamp previous) throws IOException {
+    FileStamp current = currentStamps.get(file);
+    if (current != null) {
+      return current;
+    }
+    if (!file.isFile()) {
+      throw new IOException("File not found " + file.getPath());
+    }
+    long length = file.length();
+    long lastModified = file.lastModified();
+    if (previous != null && previous.length == length && previous.lastModified == lastModified) {
+      current = previous;
+    } else {
+      current = new FileStamp(file, length, lastModified, md5(file));
+    }
+    FileStamp published = currentStamps.putIfAbsent(file, current);
+    return (published != null) ? published : current;
+  }
+
+  /**
+   * Returns key that identifies compiler settings that affect generated code.
+   */
+  public static String getConfigKey(Configuration config) {
+    StringBuilder sb = new StringBuilder();
+    sb.append(CACHE_VERSION);
+    sb.append('|').append(config.getOutputLanguage());
+    sb.append('|').append(config.getTargetDir() == null ? ""
+        : config.getTargetDir().getAbsolutePath());
+    sb.append('|').append(config.getSourceRoot() == null ? ""
+        : config.getSourceRoot().getAbsolutePath());
+    sb.append('|').append(config.getLibraryName());
+    sb.append('|').append(config.isDebugEnabled());
+    sb.append('|').append(config.isLocalizationWarnEnabled());
+    if (config.getImportPaths() != null) {
+      for (String importPath : config.getImportPaths()) {
+        sb.append('|').append(importPath);
+      }
+    }
+    try {
+      return md5(sb.toString().getBytes("UTF-8"));
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns hex md5 checksum of data.
+   */
+  public static String md5(byte[] data) {
+    MessageDigest digest = Checksums.createMd5Digest();
+    digest.update(data);
+    return Checksums.toHex(digest.digest());
+  }
+
+  /**
+   * Returns hex md5 checksum of file contents.
+   */
+  public static String md5(File file) throws IOException {
+    MessageDigest digest = Checksums.createMd5Digest();
+    InputStream stream = new FileInputStream(file);
+    try {
+      byte[] buffer = new byte[8192];
+      int count;
+      while ((count = stream.read(buffer)) != -1) {
+        digest.update(buffer, 0, count);
+      }
+    } finally {
+      stream.close();
+    }
+    return Checksums.toHex(digest.digest());
+  }
+
+  /**
+   * Length, modification time and content hash of a file.
+   */
+  private static class FileStamp {
+    private final File file;
+    private final long length;
+    private final long lastModified;
+    private final String md5;
+
+    FileStamp(File file, long length, long lastModified, String md5) {
+      this.file = file;
+      this.length = length;
+      this.lastModified = lastModified;
+      this.md5 = md5;
+    }
+  }
+
+  /**
+   * Holds compile record of a single source file.
+   */
+  public static class Entry {
+    private final String configKey;
+    private final FileStamp source;
+    private final FileStamp output;
+    private final List<FileStamp> dependencies = Lists.newArrayList();
+
+    Entry(String configKey, FileStamp source, FileStamp output) {
+      this.configKey = configKey;
+      this.source = source;
+      this.output = output;
+    }
+
+    private String getKey() {
+      return configKey + SEPARATOR + source.file.getPath();
+    }
+
+    /** Returns file generated for source. */
+    public File getOutput() {
+      return output.file;
+    }
+
+    /** Returns md5 of generated file. */
+    public String getOutputMd5() {
+      return output.md5;
+    }
+
+    /** Returns files imported by source. */
+    public List<File> getDependencies() {
+      List<File> files = Lists.newArrayList();
+      for (FileStamp stamp : dependencies) {
+        files.add(stamp.file);
+      }
+      return files;
+    }
+  }
+}
@@ -223,12 +223,21 @@ public class ChromeCompiler {
     //       new PropertyBinding(contentContainer1, ContentContainer.contentPropDef,
     //           targetElement, [Button.contentPropDef]);
     //   contentContainer1.bindings.push(binding);
+    //
+    // Bindings are kept by elements of the chrome tree so a pooled tree can
+    // detach and rebind them. Bindings that update the target element are
+    // kept by the tree root.
     if (modelCompiler.chromePropertyBindings != null) {
       TypeToken propertyBindingType = TypeToken.fromClass(PropertyBinding.class);
       for (ModelPropertyBinding bind : modelCompiler.chromePropertyBindings) {
         packageBuilder.addImport(TypeToken.fromClass(PropertyBinding.class));
+        Reference bindingOwner = bind.getTargetBindingsCollection();
+        if (CHROME_METHOD_TARGET_PARAM_NAME.equals(bindingOwner.getName())) {
+          bindingOwner = (chromeTreeRoot instanceof Reference) ? (Reference) chromeTreeRoot
+              : targetElementReference;
+        }
         Expression bindingCollectionExpr = packageBuilder.createGetPropertyExpression(
-            targetElementReference, "bindings");
+            bindingOwner, "bindings");
         Expression targetPropertyExpression = new StringLiteralExpression(bind.getTargetProperty());
         Expression[] sourcePropertyExpression = bind.getSourceProperty();
 
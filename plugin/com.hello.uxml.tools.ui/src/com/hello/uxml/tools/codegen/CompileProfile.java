@@ -0,0 +1,384 @@
+package com.hello.uxml.tools.codegen;
+
+import com.google.common.collect.Lists;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Records wall time, allocation and output size of each compiled file and
+ * phase.
+ *
+ * <p>Phases may nest. Chrome compile time is included in compile time and
+ * import parse time is included in the phase that triggered the import.
+ * Allocation is measured per thread and reported as -1 if the JVM does not
+ * support thread allocation counters.
+ *
+ * <p>Files may be recorded concurrently, a single file record must only be
+ * used by the thread compiling the file.
+ *
+ * @author ferhat
+ */
+public class CompileProfile {
+
+  /**
+   * Compile phases of a markup file.
+   */
+  public enum Phase {
+    /** SAX parsing of the markup file into a model. */
+    PARSE("parse"),
+    /** Model compilation into package builder. */
+    COMPILE("compile"),
+    /** Chrome compilation, part of COMPILE. */
+    CHROME("chrome"),
+    /** Source emission by the package builder. */
+    EMIT("emit"),
+    /** Comparing and writing the output file. */
+    WRITE("write");
+
+    private final String name;
+
+    private Phase(String name) {
+      this.name = name;
+    }
+
+    /** Returns name used in reports. */
+    public String getName() {
+      return name;
+    }
+  }
+
+  private static final double NANOS_PER_MILLI = 1000000.0;
+
+  /** Thread bean interface of HotSpot JVMs that counts allocated bytes. */
+  private static final String ALLOCATION_BEAN_NAME = "com.sun.management.ThreadMXBean";
+
+  /** Reads allocated bytes of a thread or null if not supported. */
+  private static final Method allocatedBytesMethod = findAllocatedBytesMethod();
+
+  private final List<FileRecord> records = Lists.newArrayList();
+
+  /**
+   * Starts recording compile of a file.
+   */
+  public FileRecord startFile(File source) {
+    return new FileRecord(source);
+  }
+
+  /**
+   * Completes a file record and adds it to profile.
+   */
+  public void finishFile(FileRecord record, boolean success) {
+    record.totalNanos = System.nanoTime() - record.startNanos;
+    long bytes = threadAllocatedBytes();
+    record.allocatedBytes = (bytes == -1 || record.startBytes == -1) ? -1
+        : bytes - record.startBytes;
+    record.success = success;
+    synchronized (records) {
+      records.add(record);
+    }
+  }
+
+  /**
+   * Returns file records in completion order.
+   */
+  public List<FileRecord> getRecords() {
+    synchronized (records) {
+      return Lists.newArrayList(records);
+    }
+  }
+
+  /**
+   * Returns up to count records with the longest total time, slowest first.
+   */
+  public List<FileRecord> getSlowest(int count) {
+    List<FileRecord> sorted = getRecords();
+    Collections.sort(sorted, new Comparator<FileRecord>() {
+      @Override
+      public int compare(FileRecord a, FileRecord b) {
+        return (a.totalNanos < b.totalNanos) ? 1 : ((a.totalNanos == b.totalNanos) ? 0 : -1);
+      }
+    });
+    return sorted.subList(0, Math.min(count, sorted.size()));
+  }
+
+  /**
+   * Returns sum of time spent in phase by all files.
+   */
+  public long getPhaseNanos(Phase phase) {
+    long total = 0;
+    for (FileRecord record : getRecords()) {
+      total += record.phaseNanos[phase.ordinal()];
+    }
+    return total;
+  }
+
+  /**
+   * Returns summary with phase totals and the count slowest files.
+   */
+  public String formatSummary(int count) {
+    List<FileRecord> all = getRecords();
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format(Locale.US, "Profile of %d files:", all.size()));
+    for (Phase phase : Phase.values()) {
+      sb.append(String.format(Locale.US, " %s %.1fms", phase.getName(),
+          getPhaseNanos(phase) / NANOS_PER_MILLI));
+    }
+    List<FileRecord> slowest = getSlowest(count);
+    if (!slowest.isEmpty()) {
+      sb.append("\nSlowest files:");
+      for (FileRecord record : slowest) {
+        sb.append(String.format(Locale.US, "\n  %8.1fms %s%s",
+            record.totalNanos / NANOS_PER_MILLI, record.source.getPath(),
+            record.cached ? " (up to date)" : ""));
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Writes file records as a JSON document. Times are in milliseconds.
+   */
+  public void writeJson(Writer writer) throws IOException {
+    List<FileRecord> all = getRecords();
+    writer.write("{\n  \"phases\": {");
+    Phase[] phases = Phase.values();
+    for (int p = 0; p < phases.length; ++p) {
+      writer.write(String.format(Locale.US, "%s\"%s\": %.3f", (p == 0) ? "" : ", ",
+          phases[p].getName(), getPhaseNanos(phases[p]) / NANOS_PER_MILLI));
+    }
+    writer.write("},\n  \"files\": [");
+    for (int i = 0; i < all.size(); ++i) {
+      FileRecord record = all.get(i);
+      writer.write((i == 0) ? "\n" : ",\n");
+      writer.write("    {\"source\": ");
+      writeJsonString(writer, record.source.getPath());
+      writer.write(String.format(Locale.US,
+          ", \"success\": %b, \"cached\": %b, \"totalMs\": %.3f, \"allocatedBytes\": %d"
+          + ", \"outputBytes\": %d, \"phases\": {", record.success, record.cached,
+          record.totalNanos / NANOS_PER_MILLI, record.allocatedBytes, record.outputBytes));
+      for (int p = 0; p < phases.length; ++p) {
+        writer.write(String.format(Locale.US, "%s\"%s\": {\"ms\": %.3f, \"allocatedBytes\": %d}",
+            (p == 0) ? "" : ", ", phases[p].getName(),
+            record.phaseNanos[p] / NANOS_PER_MILLI, record.phaseBytes[p]));
+      }
+      writer.write("}}");
+    }
+    writer.write("\n  ]\n}\n");
+  }
+
+  /**
+   * Writes file records as comma separated values with a header row. Times
+   * are in milliseconds.
+   */
+  public void writeCsv(Writer writer) throws IOException {
+    StringBuilder header = new StringBuilder(
+        "source,success,cached,totalMs,allocatedBytes,outputBytes");
+    for (Phase phase : Phase.values()) {
+      header.append(',').append(phase.getName()).append("Ms,");
+      header.append(phase.getName()).append("AllocatedBytes");
+    }
+    writer.write(header.toString());
+    writer.write('\n');
+    for (FileRecord record : getRecords()) {
+      writeCsvString(writer, record.source.getPath());
+      writer.write(String.format(Locale.US, ",%b,%b,%.3f,%d,%d", record.success, record.cached,
+          record.totalNanos / NANOS_PER_MILLI, record.allocatedBytes, record.outputBytes));
+      for (Phase phase : Phase.values()) {
+        writer.write(String.format(Locale.US, ",%.3f,%d",
+            record.phaseNanos[phase.ordinal()] / NANOS_PER_MILLI,
+            record.phaseBytes[phase.ordinal()]));
+      }
+      writer.write('\n');
+    }
+  }
+
+  private static void writeJsonString(Writer writer, String value) throws IOException {
+    StringBuilder sb = new StringBuilder(value.length() + 2);
+    sb.append('"');
+    for (int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    sb.append('"');
+    writer.write(sb.toString());
+  }
+
+  private static void writeCsvString(Writer writer, String value) throws IOException {
+    if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1) {
+      writer.write(value);
+    } else {
+      writer.write('"' + value.replace("\"", "\"\"") + '"');
+    }
+  }
+
+  /**
+   * Returns bytes allocated by the calling thread or -1 if not supported.
+   * The JVM specific bean is looked up reflectively so the compiler doesn't
+   * link against com.sun.management.
+   */
+  private static long threadAllocatedBytes() {
+    if (allocatedBytesMethod == null) {
+      return -1;
+    }
+    try {
+      return ((Long) allocatedBytesMethod.invoke(ManagementFactory.getThreadMXBean(),
+          Thread.currentThread().getId())).longValue();
+    } catch (IllegalAccessException e) {
+      return -1;
+    } catch (InvocationTargetException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Returns getThreadAllocatedBytes(long) of the platform thread bean if
+   * allocation counting is supported and enabled, otherwise null.
+   */
+  private static Method findAllocatedBytesMethod() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    Class<?> beanInterface = findInterface(bean.getClass(), ALLOCATION_BEAN_NAME);
+    if (beanInterface == null) {
+      return null;
+    }
+    try {
+      Method supported = beanInterface.getMethod("isThreadAllocatedMemorySupported");
+      Method enabled = beanInterface.getMethod("isThreadAllocatedMemoryEnabled");
+      if (!((Boolean) supported.invoke(bean)).booleanValue()
+          || !((Boolean) enabled.invoke(bean)).booleanValue()) {
+        return null;
+      }
+      return beanInterface.getMethod("getThreadAllocatedBytes", long.class);
+    } catch (NoSuchMethodException e) {
+      return null;
+    } catch (IllegalAccessException e) {
+      return null;
+    } catch (InvocationTargetException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns interface named name implemented by type or its supertypes.
+   */
+  private static Class<?> findInterface(Class<?> type, String name) {
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      for (Class<?> implemented : current.getInterfaces()) {
+        if (implemented.getName().equals(name)) {
+          return implemented;
+        }
+        Class<?> inherited = findInterface(implemented, name);
+        if (inherited != null) {
+          return inherited;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Profile of a single markup file.
+   */
+  public static class FileRecord {
+    private final File source;
+    private final long startNanos;
+    private final long startBytes;
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private final long[] phaseBytes = new long[Phase.values().length];
+    private final long[] phaseStartNanos = new long[Phase.values().length];
+    private final long[] phaseStartBytes = new long[Phase.values().length];
+    private long totalNanos;
+    private long allocatedBytes;
+    private long outputBytes;
+    private boolean cached;
+    private boolean success;
+
+    FileRecord(File source) {
+      this.source = source;
+      startBytes = threadAllocatedBytes();
+      startNanos = System.nanoTime();
+    }
+
+    /**
+     * Marks start of phase.
+     */
+    public void startPhase(Phase phase) {
+      phaseStartBytes[phase.ordinal()] = threadAllocatedBytes();
+      phaseStartNanos[phase.ordinal()] = System.nanoTime();
+    }
+
+    /**
+     * Adds time and allocation since {@link #startPhase} to phase.
+     */
+    public void endPhase(Phase phase) {
+      int index = phase.ordinal();
+      phaseNanos[index] += System.nanoTime() - phaseStartNanos[index];
+      long bytes = threadAllocatedBytes();
+      if (bytes == -1 || phaseStartBytes[index] == -1) {
+        phaseBytes[index] = -1;
+      } else if (phaseBytes[index] != -1) {
+        phaseBytes[index] += bytes - phaseStartBytes[index];
+      }
+    }
+
+    /** Sets whether file was skipped as up to date. */
+    public void setCached(boolean value) {
+      cached = value;
+    }
+
+    /** Sets size of generated output in bytes. */
+    public void setOutputBytes(long value) {
+      outputBytes = value;
+    }
+
+    /** Returns source file. */
+    public File getSource() {
+      return source;
+    }
+
+    /** Returns wall time of file compile in nanoseconds. */
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    /** Returns wall time spent in phase in nanoseconds. */
+    public long getPhaseNanos(Phase phase) {
+      return phaseNanos[phase.ordinal()];
+    }
+
+    /** Returns bytes allocated by compile or -1 if not supported. */
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+
+    /** Returns size of generated output in bytes. */
+    public long getOutputBytes() {
+      return outputBytes;
+    }
+
+    /** Returns true if file was skipped as up to date. */
+    public boolean isCached() {
+      return cached;
+    }
+
+    /** Returns true if file compiled successfully. */
+    public boolean isSuccess() {
+      return success;
+    }
+  }
+}
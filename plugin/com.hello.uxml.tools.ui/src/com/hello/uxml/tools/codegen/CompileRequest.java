@@ -0,0 +1,206 @@
+package com.hello.uxml.tools.codegen;
+
+import com.google.common.collect.Lists;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Holds command line options of a single compiler invocation.
+ *
+ * <p>Requests are serialized as tab separated key/value lines so they can be
+ * sent to a {@link CompilerDaemon}. Paths are written as absolute paths since
+ * the daemon runs in a different working directory than the client.
+ *
+ * @author ferhat
+ */
+class CompileRequest {
+
+  private static final String FILE_KEY = "file";
+  private static final String OUT_KEY = "out";
+  private static final String SOURCE_ROOT_KEY = "sourceroot";
+  private static final String LIBRARY_NAME_KEY = "libraryname";
+  private static final String IMPORT_KEY = "import";
+  private static final String LANG_KEY = "lang";
+  private static final String DEBUG_KEY = "debug";
+  private static final String WARN_LOCALIZATION_KEY = "warnlocalization";
+  private static final String ASLIB_KEY = "aslib";
+  private static final String WORKERS_KEY = "workers";
+  private static final String CACHE_KEY = "cache";
+  private static final String PROFILE_KEY = "profile";
+  private static final String PROFILE_TOP_KEY = "profiletop";
+  private static final String END_RECORD = "end";
+  private static final String SEPARATOR = "\t";
+
+  /** Markup files to compile. */
+  final List<String> files = Lists.newArrayList();
+
+  /** Normalized import paths. */
+  final List<String> importPaths = Lists.newArrayList();
+
+  String outputDir = "";
+  String sourceRoot = "";
+  String libraryName = "";
+  String language = "As3";
+  boolean debugEnabled = false;
+  boolean localizationWarnEnabled = false;
+  String aslib = "";
+  int workerCount = 0;
+  String cache = "";
+  String profile = "";
+  int profileTopCount = 0;
+
+  /**
+   * Writes request as key/value lines terminated by an end record.
+   */
+  void write(Writer writer) throws IOException {
+    for (String file : files) {
+      writeField(writer, FILE_KEY, absolutePath(file));
+    }
+    for (String importPath : importPaths) {
+      writeField(writer, IMPORT_KEY, absolutePath(importPath));
+    }
+    writeField(writer, OUT_KEY, absolutePath(outputDir));
+    writeField(writer, SOURCE_ROOT_KEY, absolutePath(sourceRoot));
+    writeField(writer, LIBRARY_NAME_KEY, libraryName);
+    writeField(writer, LANG_KEY, language);
+    writeField(writer, DEBUG_KEY, String.valueOf(debugEnabled));
+    writeField(writer, WARN_LOCALIZATION_KEY, String.valueOf(localizationWarnEnabled));
+    writeField(writer, ASLIB_KEY, absolutePath(aslib));
+    writeField(writer, WORKERS_KEY, String.valueOf(workerCount));
+    writeField(writer, CACHE_KEY, absolutePath(cache));
+    writeField(writer, PROFILE_KEY, absolutePath(profile));
+    writeField(writer, PROFILE_TOP_KEY, String.valueOf(profileTopCount));
+    writer.write(END_RECORD + '\n');
+  }
+
+  /**
+   * Reads a request written by {@link #write}.
+   *
+   * @throws IOException if stream ends before end record or contains an
+   *     unknown field.
+   */
+  static CompileRequest read(BufferedReader reader) throws IOException {
+    CompileRequest request = new CompileRequest();
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.equals(END_RECORD)) {
+        return request;
+      }
+      int pos = line.indexOf(SEPARATOR);
+      if (pos == -1) {
+        throw new IOException("Invalid request field " + line);
+      }
+      String key = line.substring(0, pos);
+      String value = unescape(line.substring(pos + 1));
+      if (key.equals(FILE_KEY)) {
+        request.files.add(value);
+      } else if (key.equals(IMPORT_KEY)) {
+        request.importPaths.add(value);
+      } else if (key.equals(OUT_KEY)) {
+        request.outputDir = value;
+      } else if (key.equals(SOURCE_ROOT_KEY)) {
+        request.sourceRoot = value;
+      } else if (key.equals(LIBRARY_NAME_KEY)) {
+        request.libraryName = value;
+      } else if (key.equals(LANG_KEY)) {
+        request.language = value;
+      } else if (key.equals(DEBUG_KEY)) {
+        request.debugEnabled = Boolean.parseBoolean(value);
+      } else if (key.equals(WARN_LOCALIZATION_KEY)) {
+        request.localizationWarnEnabled = Boolean.parseBoolean(value);
+      } else if (key.equals(ASLIB_KEY)) {
+        request.aslib = value;
+      } else if (key.equals(WORKERS_KEY)) {
+        try {
+          request.workerCount = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+          throw new IOException("Invalid worker count " + value);
+        }
+      } else if (key.equals(CACHE_KEY)) {
+        request.cache = value;
+      } else if (key.equals(PROFILE_KEY)) {
+        request.profile = value;
+      } else if (key.equals(PROFILE_TOP_KEY)) {
+        try {
+          request.profileTopCount = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+          throw new IOException("Invalid profile top count " + value);
+        }
+      } else {
+        throw new IOException("Unknown request field " + key);
+      }
+    }
+    throw new IOException("Unexpected end of request");
+  }
+
+  private static void writeField(Writer writer, String key, String value) throws IOException {
+    writer.write(key + SEPARATOR + escape(value) + '\n');
+  }
+
+  private static String absolutePath(String path) {
+    return path.length() == 0 ? path : new File(path).getAbsolutePath();
+  }
+
+  /**
+   * Escapes backslash, tab and line breaks so value fits on a single line.
+   */
+  static String escape(String value) {
+    StringBuilder sb = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        default:
+          sb.append(c);
+          break;
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Reverses {@link #escape}.
+   */
+  static String unescape(String value) {
+    if (value.indexOf('\\') == -1) {
+      return value;
+    }
+    StringBuilder sb = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); ++i) {
+      char c = value.charAt(i);
+      if (c == '\\' && i + 1 < value.length()) {
+        c = value.charAt(++i);
+        switch (c) {
+          case 't':
+            c = '\t';
+            break;
+          case 'n':
+            c = '\n';
+            break;
+          case 'r':
+            c = '\r';
+            break;
+          default:
+            break;
+        }
+      }
+      sb.append(c);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,356 @@
+package com.hello.uxml.tools.codegen;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.flags.Flag;
+import com.google.common.flags.FlagSpec;
+import com.google.common.flags.Flags;
+import com.google.common.io.Files;
+import com.hello.uxml.tools.codegen.emit.BuilderFactoryRegistry;
+import com.hello.uxml.tools.codegen.emit.java.JBuilderFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures parse, compile and emit throughput of the compiler for each
+ * target language.
+ *
+ * <p>Runs on generated corpora (small files, deep nesting, heavy bindings,
+ * chrome definitions) and optionally on markup files of a sample directory.
+ * Each corpus is compiled warmup times and then measured for a number of
+ * iterations. Results are written as CSV with one row per corpus and
+ * language. Corpora are generated deterministically so reports of different
+ * builds can be compared by passing an earlier report as --baseline.
+ *
+ * <p>Usage: CompilerBenchmark --iterations=10 --langs=As3,Dart --samples=samples/web
+ *
+ * @author ferhat
+ */
+public class CompilerBenchmark {
+
+  @FlagSpec(help = "Number of measured compiles of each corpus")
+  private static final Flag<Integer> iterations = Flag.value(10);
+  @FlagSpec(help = "Number of compiles of each corpus before measuring")
+  private static final Flag<Integer> warmup = Flag.value(5);
+  @FlagSpec(help = "Comma separated target languages")
+  private static final Flag<String> langs = Flag.value("As3,Dart,Java");
+  @FlagSpec(help = "Comma separated corpora: small, deep, binding, chrome, samples")
+  private static final Flag<String> corpora = Flag.value("small,deep,binding,chrome,samples");
+  @FlagSpec(help = "Number of markup files in each generated corpus")
+  private static final Flag<Integer> files = Flag.value(20);
+  @FlagSpec(help = "Directory of markup files used as the samples corpus")
+  private static final Flag<String> samples = Flag.value("");
+  @FlagSpec(altName = "out", help = "Report file. Report is printed if not set")
+  private static final Flag<String> FLAG_out = Flag.value("");
+  @FlagSpec(help = "Earlier report to compare results with")
+  private static final Flag<String> baseline = Flag.value("");
+
+  private static final String REPORT_HEADER = "corpus,lang,files,iterations,parseMs,compileMs,"
+      + "emitMs,totalMs,totalMsStdDev,filesPerSec,allocatedBytes";
+
+  /** Nesting depth of deep corpus files. */
+  private static final int DEEP_NESTING_LEVELS = 40;
+
+  /** Number of bound elements in binding corpus files. */
+  private static final int BINDING_ELEMENT_COUNT = 60;
+
+  /** Number of chrome definitions in chrome corpus files. */
+  private static final int CHROME_COUNT = 10;
+
+  private static final double NANOS_PER_MILLI = 1000000.0;
+
+  private static final Logger logger = Logger.getLogger(CompilerBenchmark.class.getName());
+
+  /**
+   * Non public constructor.
+   */
+  private CompilerBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    Flags.parseAndReturnLeftovers(args);
+    BuilderFactoryRegistry registry = Main.createRegistry();
+    registry.registerFactory("Java", new JBuilderFactory());
+
+    File workDir = Files.createTempDir();
+    boolean success = false;
+    StringWriter report = new StringWriter();
+    PrintWriter reportWriter = new PrintWriter(report);
+    reportWriter.println(REPORT_HEADER);
+    try {
+      for (String corpus : corpora.get().split(",")) {
+        corpus = corpus.trim();
+        Set<File> sources = createCorpus(corpus, new File(workDir, corpus));
+        if (sources.isEmpty()) {
+          continue;
+        }
+        for (String lang : langs.get().split(",")) {
+          lang = lang.trim();
+          File outDir = new File(new File(workDir, "out"), lang + "_" + corpus);
+          outDir.mkdirs();
+          String row = run(corpus, lang, sources, outDir, registry);
+          if (row == null) {
+            return;
+          }
+          reportWriter.println(row);
+          logger.log(Level.INFO, row);
+        }
+      }
+      reportWriter.flush();
+      if (FLAG_out.get().length() != 0) {
+        Files.write(report.toString(), new File(FLAG_out.get()), Charset.forName("UTF-8"));
+      } else {
+        System.out.print(report.toString());
+      }
+      if (baseline.get().length() != 0) {
+        System.out.print(compare(Files.readLines(new File(baseline.get()),
+            Charset.forName("UTF-8")), report.toString().split("\n")));
+      }
+      success = true;
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Benchmark failed", e);
+    } finally {
+      deleteRecursively(workDir);
+      if (!success) {
+        System.exit(1);
+      }
+    }
+  }
+
+  /**
+   * Compiles sources warmup and iterations times and returns report row or
+   * null if compile failed.
+   */
+  private static String run(String corpus, String lang, Set<File> sources, File outDir,
+      BuilderFactoryRegistry registry) {
+    Configuration config = new Main.CommandLineConfiguration(sources, outDir, null, "",
+        new String[0], lang, false, false);
+    int iterationCount = Math.max(1, iterations.get());
+    long[] phaseNanos = new long[CompileProfile.Phase.values().length];
+    long[] totalNanos = new long[iterationCount];
+    long allocatedBytes = 0;
+    for (int i = -warmup.get(); i < iterationCount; ++i) {
+      UXMLCompiler compiler = new UXMLCompiler(config, registry);
+      CompileProfile profile = new CompileProfile();
+      compiler.setProfile(profile);
+      long start = System.nanoTime();
+      boolean success = compiler.compile();
+      long elapsed = System.nanoTime() - start;
+      if (!success || !compiler.getErrors().isEmpty()) {
+        logger.log(Level.SEVERE, String.format("Compile of %s corpus to %s failed: %s",
+            corpus, lang, compiler.getErrors()));
+        return null;
+      }
+      if (i < 0) {
+        continue;
+      }
+      totalNanos[i] = elapsed;
+      for (CompileProfile.Phase phase : CompileProfile.Phase.values()) {
+        phaseNanos[phase.ordinal()] += profile.getPhaseNanos(phase);
+      }
+      for (CompileProfile.FileRecord record : profile.getRecords()) {
+        allocatedBytes = (allocatedBytes == -1 || record.getAllocatedBytes() == -1) ? -1
+            : allocatedBytes + record.getAllocatedBytes();
+      }
+    }
+
+    // Report means per file so corpora of different sizes are comparable.
+    double compiles = (double) iterationCount * sources.size();
+    double meanNanos = 0;
+    for (long value : totalNanos) {
+      meanNanos += value;
+    }
+    meanNanos /= iterationCount;
+    double variance = 0;
+    for (long value : totalNanos) {
+      variance += (value - meanNanos) * (value - meanNanos);
+    }
+    variance /= iterationCount;
+    return String.format(Locale.US, "%s,%s,%d,%d,%.4f,%.4f,%.4f,%.4f,%.4f,%.1f,%d",
+        corpus, lang, sources.size(), iterationCount,
+        phaseNanos[CompileProfile.Phase.PARSE.ordinal()] / compiles / NANOS_PER_MILLI,
+        phaseNanos[CompileProfile.Phase.COMPILE.ordinal()] / compiles / NANOS_PER_MILLI,
+        phaseNanos[CompileProfile.Phase.EMIT.ordinal()] / compiles / NANOS_PER_MILLI,
+        meanNanos / sources.size() / NANOS_PER_MILLI,
+        Math.sqrt(variance) / sources.size() / NANOS_PER_MILLI,
+        sources.size() * NANOS_PER_MILLI * 1000.0 / meanNanos,
+        (allocatedBytes == -1) ? -1 : (long) (allocatedBytes / compiles));
+  }
+
+  /**
+   * Writes markup files of corpus to directory and returns their paths.
+   */
+  private static Set<File> createCorpus(String corpus, File dir) throws IOException {
+    Set<File> sources = Sets.newLinkedHashSet();
+    if (corpus.equals("samples")) {
+      if (samples.get().length() == 0) {
+        return sources;
+      }
+      File[] sampleFiles = new File(samples.get()).listFiles();
+      if (sampleFiles != null) {
+        for (File file : sampleFiles) {
+          if (file.getName().endsWith(".uxml") || file.getName().endsWith(".hts")) {
+            sources.add(file);
+          }
+        }
+      }
+      return sources;
+    }
+    dir.mkdirs();
+    for (int f = 0; f < files.get(); ++f) {
+      String name = Character.toUpperCase(corpus.charAt(0)) + corpus.substring(1) + "Page" + f;
+      String markup;
+      if (corpus.equals("small")) {
+        markup = createSmallMarkup(name, f);
+      } else if (corpus.equals("deep")) {
+        markup = createDeepMarkup(name, f);
+      } else if (corpus.equals("binding")) {
+        markup = createBindingMarkup(name, f);
+      } else if (corpus.equals("chrome")) {
+        markup = createChromeMarkup(name, f);
+      } else {
+        throw new IllegalArgumentException("Unknown corpus " + corpus);
+      }
+      File file = new File(dir, name + ".uxml");
+      Files.write(markup, file, Charset.forName("UTF-8"));
+      sources.add(file);
+    }
+    return sources;
+  }
+
+  private static String createSmallMarkup(String name, int seed) {
+    StringBuilder sb = new StringBuilder();
+    appendHeader(sb, name);
+    sb.append("  <VBox>\n");
+    sb.append("    <Label text=\"Title ").append(seed).append("\"/>\n");
+    sb.append("    <TextBox text=\"\"/>\n");
+    sb.append("    <CheckBox content=\"Remember\"/>\n");
+    sb.append("    <Button content=\"OK\" minWidth=\"").append(60 + seed).append("\"/>\n");
+    sb.append("  </VBox>\n");
+    sb.append("</Application>\n");
+    return sb.toString();
+  }
+
+  private static String createDeepMarkup(String name, int seed) {
+    StringBuilder sb = new StringBuilder();
+    appendHeader(sb, name);
+    StringBuilder indent = new StringBuilder("  ");
+    for (int level = 0; level < DEEP_NESTING_LEVELS; ++level) {
+      String tag = (level % 2 == 0) ? "VBox" : "HBox";
+      sb.append(indent).append('<').append(tag).append(">\n");
+      sb.append(indent).append("  <Label text=\"Level ").append(level).append(' ')
+          .append(seed).append("\"/>\n");
+      indent.append("  ");
+    }
+    for (int level = DEEP_NESTING_LEVELS - 1; level >= 0; --level) {
+      indent.setLength(indent.length() - 2);
+      sb.append(indent).append("</").append((level % 2 == 0) ? "VBox" : "HBox").append(">\n");
+    }
+    sb.append("</Application>\n");
+    return sb.toString();
+  }
+
+  private static String createBindingMarkup(String name, int seed) {
+    StringBuilder sb = new StringBuilder();
+    appendHeader(sb, name);
+    sb.append("  <VBox>\n");
+    sb.append("    <TextBox id=\"source\" text=\"Value ").append(seed).append("\"/>\n");
+    String previous = "source";
+    for (int e = 0; e < BINDING_ELEMENT_COUNT; ++e) {
+      String id = "label" + e;
+      sb.append("    <Label id=\"").append(id).append("\" text=\"{").append(previous)
+          .append(".text}\"/>\n");
+      previous = id;
+    }
+    sb.append("  </VBox>\n");
+    sb.append("</Application>\n");
+    return sb.toString();
+  }
+
+  private static String createChromeMarkup(String name, int seed) {
+    StringBuilder sb = new StringBuilder();
+    appendHeader(sb, name);
+    sb.append("  <Resources>\n");
+    sb.append("    <SolidBrush id=\"accentBrush\" color=\"#").append(
+        String.format("%06X", seed * 0x10101)).append("\"/>\n");
+    for (int c = 0; c < CHROME_COUNT; ++c) {
+      sb.append("    <Chrome id=\"chrome").append(c).append("\" type=\"Button\">\n");
+      sb.append("      <Elements>\n");
+      sb.append("        <Border background=\"{accentBrush}\" borderRadius=\"").append(c)
+          .append("\" padding=\"4\">\n");
+      sb.append("          <ContentContainer content=\"{content}\"/>\n");
+      sb.append("        </Border>\n");
+      sb.append("      </Elements>\n");
+      sb.append("      <Properties>\n");
+      sb.append("        <Property name=\"minWidth\" value=\"").append(40 + c).append("\"/>\n");
+      sb.append("      </Properties>\n");
+      sb.append("    </Chrome>\n");
+    }
+    sb.append("  </Resources>\n");
+    sb.append("  <VBox>\n");
+    for (int c = 0; c < CHROME_COUNT; ++c) {
+      sb.append("    <Button chrome=\"{chrome").append(c).append("}\" content=\"Button ")
+          .append(c).append("\"/>\n");
+    }
+    sb.append("  </VBox>\n");
+    sb.append("</Application>\n");
+    return sb.toString();
+  }
+
+  private static void appendHeader(StringBuilder sb, String name) {
+    sb.append("<?xml version=\"1.0\" ?>\n");
+    sb.append("<Application name=\"").append(name).append("\">\n");
+  }
+
+  /**
+   * Returns change of total time per file for rows present in both reports.
+   */
+  private static String compare(List<String> baselineRows, String[] rows) {
+    Map<String, Double> baselineTimes = Maps.newHashMap();
+    for (String row : baselineRows) {
+      String[] fields = row.split(",");
+      if (!row.equals(REPORT_HEADER) && fields.length > 7) {
+        baselineTimes.put(fields[0] + "," + fields[1], Double.parseDouble(fields[7]));
+      }
+    }
+    List<String> lines = Lists.newArrayList();
+    for (String row : rows) {
+      String[] fields = row.split(",");
+      if (row.equals(REPORT_HEADER) || fields.length <= 7) {
+        continue;
+      }
+      Double baselineTime = baselineTimes.get(fields[0] + "," + fields[1]);
+      if (baselineTime != null && baselineTime > 0) {
+        double time = Double.parseDouble(fields[7]);
+        lines.add(String.format(Locale.US, "%-10s %-5s %9.4fms -> %9.4fms %+6.1f%%",
+            fields[0], fields[1], baselineTime, time, (time - baselineTime) * 100 / baselineTime));
+      }
+    }
+    StringBuilder sb = new StringBuilder();
+    for (String line : lines) {
+      sb.append(line).append('\n');
+    }
+    return sb.toString();
+  }
+
+  private static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+    file.delete();
+  }
+}
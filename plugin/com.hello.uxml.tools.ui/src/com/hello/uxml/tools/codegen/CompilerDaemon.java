@@ -0,0 +1,309 @@
+package com.hello.uxml.tools.codegen;
+
+import com.google.common.collect.Maps;
+import com.hello.uxml.tools.codegen.emit.BuilderFactoryRegistry;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves compile requests on a local socket so repeated compiler invocations
+ * share a warm JVM, model reflector, builder factories, parsed imports and
+ * build caches.
+ *
+ * <p>Each connection carries a single request. The client writes the
+ * protocol header, a command and for compile commands a
+ * {@link CompileRequest}. The daemon replies with log and error records
+ * followed by a done record holding the compile result. The daemon only
+ * listens on the loopback interface.
+ *
+ * <p>Requests are compiled concurrently. The reflector is fully cached
+ * before the first request and static compiler tables are either filled in
+ * static initializers or concurrent maps.
+ *
+ * @author ferhat
+ */
+public class CompilerDaemon {
+
+  private static final String PROTOCOL_HEADER = "uxml daemon v1";
+  private static final String COMPILE_COMMAND = "compile";
+  private static final String SHUTDOWN_COMMAND = "shutdown";
+  private static final String LOG_RECORD = "log";
+  private static final String ERROR_RECORD = "error";
+  private static final String DONE_RECORD = "done";
+  private static final String SEPARATOR = "\t";
+  private static final String CHARSET = "UTF-8";
+  private static final int CONNECT_TIMEOUT_MS = 1000;
+  private static final int SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+  private static final Logger logger = Logger.getLogger(CompilerDaemon.class.getName());
+
+  private final int port;
+  private final BuilderFactoryRegistry registry;
+
+  /** Parsed imports shared by all requests. */
+  private final ImportCache importCache = new ImportCache();
+
+  /** Build caches kept loaded between requests, keyed by cache file path. */
+  private final Map<String, BuildCache> buildCaches = Maps.newHashMap();
+
+  private ServerSocket serverSocket;
+  private volatile boolean running;
+
+  /**
+   * Creates daemon for port.
+   */
+  public CompilerDaemon(int port, BuilderFactoryRegistry registry) {
+    this.port = port;
+    this.registry = registry;
+  }
+
+  /**
+   * Warms up compiler and serves requests until a shutdown request is
+   * received.
+   */
+  public void serve() throws IOException {
+    serverSocket = new ServerSocket(port, 0, InetAddress.getByName(null));
+    ModelCompiler.initEnv();
+    UXMLCompiler.getReflector().cacheAll();
+    logger.log(Level.INFO, "Compiler daemon listening on port " + port);
+
+    ExecutorService pool = Executors.newCachedThreadPool();
+    running = true;
+    try {
+      while (running) {
+        final Socket socket;
+        try {
+          socket = serverSocket.accept();
+        } catch (SocketException e) {
+          if (!running) {
+            break; // Closed by shutdown request.
+          }
+          throw e;
+        }
+        pool.execute(new Runnable() {
+          @Override
+          public void run() {
+            handleConnection(socket);
+          }
+        });
+      }
+    } finally {
+      running = false;
+      serverSocket.close();
+      pool.shutdown();
+      try {
+        pool.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Stops accepting requests. Requests in progress are completed.
+   */
+  public void shutdown() {
+    running = false;
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      // Already closed.
+    }
+  }
+
+  private void handleConnection(Socket socket) {
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(
+          socket.getInputStream(), CHARSET));
+      Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+          CHARSET));
+      if (!PROTOCOL_HEADER.equals(reader.readLine())) {
+        return;
+      }
+      String command = reader.readLine();
+      if (SHUTDOWN_COMMAND.equals(command)) {
+        writeRecord(writer, DONE_RECORD, String.valueOf(true));
+        writer.flush();
+        shutdown();
+      } else if (COMPILE_COMMAND.equals(command)) {
+        CompileRequest request = CompileRequest.read(reader);
+        SocketOutput output = new SocketOutput(writer);
+        boolean success;
+        try {
+          success = Main.compile(request, registry, getBuildCache(request.cache), importCache,
+              output);
+        } catch (RuntimeException e) {
+          logger.log(Level.WARNING, "Compile request failed", e);
+          output.printError("Internal compiler error " + e);
+          success = false;
+        }
+        writeRecord(writer, DONE_RECORD, String.valueOf(success));
+        writer.flush();
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not process compile request", e);
+    } finally {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // Ignore.
+      }
+    }
+  }
+
+  /**
+   * Returns loaded build cache for path or null if path is empty.
+   */
+  private synchronized BuildCache getBuildCache(String path) {
+    if (path.length() == 0) {
+      return null;
+    }
+    BuildCache buildCache = buildCaches.get(path);
+    if (buildCache == null) {
+      buildCache = new BuildCache(new File(path));
+      buildCache.load();
+      buildCaches.put(path, buildCache);
+    }
+    return buildCache;
+  }
+
+  /**
+   * Sends compile request to daemon running on port and relays its output.
+   *
+   * @return compile result.
+   * @throws IOException if daemon is not running or connection failed
+   *     before the compile completed.
+   */
+  static boolean send(int port, CompileRequest request, Main.CompilerOutput output)
+      throws IOException {
+    Socket socket = connect(port);
+    try {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+          CHARSET));
+      writer.write(PROTOCOL_HEADER + '\n');
+      writer.write(COMPILE_COMMAND + '\n');
+      request.write(writer);
+      writer.flush();
+      return readResponse(socket, output);
+    } finally {
+      socket.close();
+    }
+  }
+
+  /**
+   * Requests daemon running on port to shut down.
+   */
+  static void stop(int port) throws IOException {
+    Socket socket = connect(port);
+    try {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+          CHARSET));
+      writer.write(PROTOCOL_HEADER + '\n');
+      writer.write(SHUTDOWN_COMMAND + '\n');
+      writer.flush();
+      readResponse(socket, Main.consoleOutput);
+    } finally {
+      socket.close();
+    }
+  }
+
+  private static Socket connect(int port) throws IOException {
+    Socket socket = new Socket();
+    try {
+      socket.connect(new InetSocketAddress(InetAddress.getByName(null), port),
+          CONNECT_TIMEOUT_MS);
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+    return socket;
+  }
+
+  /**
+   * Relays log and error records to output until done record is read.
+   */
+  private static boolean readResponse(Socket socket, Main.CompilerOutput output)
+      throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+        CHARSET));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      String[] fields = line.split(SEPARATOR, 3);
+      if (fields[0].equals(LOG_RECORD) && fields.length == 3) {
+        Level level;
+        try {
+          level = Level.parse(fields[1]);
+        } catch (IllegalArgumentException e) {
+          level = Level.INFO;
+        }
+        output.log(level, CompileRequest.unescape(fields[2]), null);
+      } else if (fields[0].equals(ERROR_RECORD) && fields.length == 2) {
+        output.printError(CompileRequest.unescape(fields[1]));
+      } else if (fields[0].equals(DONE_RECORD) && fields.length == 2) {
+        return Boolean.parseBoolean(fields[1]);
+      } else {
+        throw new IOException("Invalid daemon response " + line);
+      }
+    }
+    throw new IOException("Daemon closed connection");
+  }
+
+  private static void writeRecord(Writer writer, String type, String value)
+      throws IOException {
+    writer.write(type + SEPARATOR + value + '\n');
+  }
+
+  /**
+   * Writes compiler output as response records. Write failures are ignored
+   * so a disconnected client doesn't abort the compile.
+   */
+  private static class SocketOutput implements Main.CompilerOutput {
+    private final Writer writer;
+    private boolean failed = false;
+
+    SocketOutput(Writer writer) {
+      this.writer = writer;
+    }
+
+    @Override
+    public synchronized void log(Level level, String message, Throwable thrown) {
+      if (thrown != null) {
+        message = message + " " + thrown;
+      }
+      write(LOG_RECORD + SEPARATOR + level.getName(), message);
+    }
+
+    @Override
+    public synchronized void printError(String message) {
+      write(ERROR_RECORD, message);
+    }
+
+    private void write(String type, String message) {
+      if (failed) {
+        return;
+      }
+      try {
+        writeRecord(writer, type, CompileRequest.escape(message));
+      } catch (IOException e) {
+        failed = true;
+      }
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.hello.uxml.tools.codegen;
 import com.hello.uxml.tools.codegen.dom.Model;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Defines interface for importing models of referenced uxml files
@@ -21,4 +22,13 @@ public interface IUXMLImporter {
    * @return DOM of uxml.
    */
   Model importModel(String path, List<CompilerError> errors);
+
+  /**
+   * Returns resources defined by an imported Resources or Interface model
+   * keyed by id. The table may be shared between compiles and must not be
+   * modified.
+   *
+   * @param importedModel model returned by importModel.
+   */
+  Map<String, Model> getResourceTable(Model importedModel);
 }
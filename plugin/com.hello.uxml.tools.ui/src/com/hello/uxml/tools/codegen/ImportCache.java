@@ -0,0 +1,215 @@
+package com.hello.uxml.tools.codegen;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import com.hello.uxml.tools.codegen.dom.Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParser;
+
+/**
+ * Cache of parsed import files shared by the markup files of a compile run
+ * or by all requests served by a {@link CompilerDaemon}.
+ *
+ * <p>Entries are invalidated by content hash. File length and modification
+ * time are compared first so unchanged files are not re-read. Cached models
+ * and resource tables are shared between compiles and must not be modified.
+ *
+ * <p>The cache is safe for concurrent compiles.
+ *
+ * @author ferhat
+ */
+public class ImportCache {
+
+  private static final String ID_ATTRIBUTE = "id";
+
+  /** Maps canonical file to cache entry. */
+  private final Map<File, Entry> entries = Maps.newHashMap();
+
+  /** Maps cached models to their entries to look up resource tables. */
+  private final Map<Model, Entry> modelEntries = new IdentityHashMap<Model, Entry>();
+
+  private int hitCount = 0;
+  private int missCount = 0;
+
+  /**
+   * Returns parsed model of file. The file is parsed on a miss. Files that
+   * fail to parse or report errors are not cached.
+   *
+   * @return model or null if file could not be parsed.
+   */
+  public Model getModel(File file, SAXParser parser, List<CompilerError> errors) {
+    return getModel(file, parser, errors, null);
+  }
+
+  /**
+   * Returns parsed model of file and adds the lookup to counts of the
+   * calling compile.
+   *
+   * @param counts hit and miss counts of a single compile or null.
+   * @return model or null if file could not be parsed.
+   */
+  public Model getModel(File file, SAXParser parser, List<CompilerError> errors,
+      Counts counts) {
+    File key = normalize(file);
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+    }
+    long length = file.length();
+    long lastModified = file.lastModified();
+    if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+      recordHit(counts);
+      return entry.model;
+    }
+
+    byte[] content;
+    try {
+      content = Files.toByteArray(file);
+    } catch (IOException e) {
+      CompilerError readError = new CompilerError(e);
+      readError.setSource(file.getName());
+      errors.add(readError);
+      return null;
+    }
+    String md5 = BuildCache.md5(content);
+    if (entry != null && entry.md5.equals(md5)) {
+      // Touched but unchanged.
+      put(key, new Entry(entry.model, length, lastModified, md5, entry.resourceTable));
+      recordHit(counts);
+      return entry.model;
+    }
+
+    int errorCount = errors.size();
+    Model model = UXMLCompiler.markupModelFromBytes(parser, content, file.getName(), errors);
+    if (counts != null) {
+      ++counts.missCount;
+    }
+    synchronized (this) {
+      ++missCount;
+      if (model != null && errors.size() == errorCount) {
+        put(key, new Entry(model, length, lastModified, md5, null));
+      } else {
+        Entry stale = entries.remove(key);
+        if (stale != null) {
+          modelEntries.remove(stale.model);
+        }
+      }
+    }
+    return model;
+  }
+
+  /**
+   * Returns resources defined by children of an imported Resources or
+   * Interface model keyed by id. Tables of cached models are computed once.
+   */
+  public Map<String, Model> getResourceTable(Model importedModel) {
+    Entry entry;
+    synchronized (this) {
+      entry = modelEntries.get(importedModel);
+      if (entry != null && entry.resourceTable != null) {
+        return entry.resourceTable;
+      }
+    }
+    Map<String, Model> table = createResourceTable(importedModel);
+    if (entry != null) {
+      synchronized (this) {
+        entry.resourceTable = table;
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Returns resources defined by children of model keyed by id in document
+   * order.
+   */
+  public static Map<String, Model> createResourceTable(Model importedModel) {
+    Map<String, Model> table = Maps.newLinkedHashMap();
+    for (int resIndex = 0; resIndex < importedModel.getChildCount(); ++resIndex) {
+      Model resourceNode = importedModel.getChild(resIndex);
+      if (resourceNode.hasProperty(ID_ATTRIBUTE)) {
+        table.put(resourceNode.getStringProperty(ID_ATTRIBUTE), resourceNode);
+      }
+    }
+    return Collections.unmodifiableMap(table);
+  }
+
+  /** Returns number of imports served from cache. */
+  public synchronized int getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns number of imports that were parsed. */
+  public synchronized int getMissCount() {
+    return missCount;
+  }
+
+  private synchronized void recordHit(Counts counts) {
+    if (counts != null) {
+      ++counts.hitCount;
+    }
+    ++hitCount;
+  }
+
+  private synchronized void put(File key, Entry entry) {
+    Entry previous = entries.put(key, entry);
+    if (previous != null) {
+      modelEntries.remove(previous.model);
+    }
+    modelEntries.put(entry.model, entry);
+  }
+
+  private static File normalize(File file) {
+    try {
+      return file.getCanonicalFile();
+    } catch (IOException e) {
+      return file.getAbsoluteFile();
+    }
+  }
+
+  /**
+   * Parsed model and stamp of an import file.
+   */
+  private static class Entry {
+    private final Model model;
+    private final long length;
+    private final long lastModified;
+    private final String md5;
+    private Map<String, Model> resourceTable;
+
+    Entry(Model model, long length, long lastModified, String md5,
+        Map<String, Model> resourceTable) {
+      this.model = model;
+      this.length = length;
+      this.lastModified = lastModified;
+      this.md5 = md5;
+      this.resourceTable = resourceTable;
+    }
+  }
+
+  /**
+   * Hit and miss counts of the lookups made by a single compile. Totals of a
+   * shared cache mix compiles that run at the same time.
+   */
+  public static class Counts {
+    private int hitCount;
+    private int missCount;
+
+    /** Returns number of imports served from cache. */
+    public int getHitCount() {
+      return hitCount;
+    }
+
+    /** Returns number of imports that were parsed. */
+    public int getMissCount() {
+      return missCount;
+    }
+  }
+}
@@ -4,6 +4,7 @@ import com.google.common.collect.Sets;
 import com.google.common.flags.Flag;
 import com.google.common.flags.FlagSpec;
 import com.google.common.flags.Flags;
+import com.google.common.io.Closeables;
 import com.google.common.io.Files;
 import com.hello.uxml.tools.codegen.emit.BuilderFactoryRegistry;
 import com.hello.uxml.tools.codegen.emit.as3.As3BuilderFactory;
@@ -11,7 +12,9 @@ import com.hello.uxml.tools.codegen.emit.dart.DartBuilderFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -37,6 +40,15 @@ public class Main {
   private static final Flag<String> lang = Flag.value("As3");
   @FlagSpec(help = "Creates aslib file with list of outputs and md5sum")
   private static final Flag<String> aslib = Flag.value("");
+  @FlagSpec(help = "Number of files to compile concurrently. 0 uses one worker per core")
+  private static final Flag<Integer> workers = Flag.value(0);
+  @FlagSpec(help = "Build cache file used to skip compiling unchanged sources")
+  private static final Flag<String> cache = Flag.value("");
+  @FlagSpec(help = "Writes compile time, allocation and output size of each file and phase "
+      + "to a report file. Files ending in .csv are written as CSV, others as JSON")
+  private static final Flag<String> profile = Flag.value("");
+  @FlagSpec(help = "Number of slowest files listed in the --profile summary")
+  private static final Flag<Integer> profiletop = Flag.value(10);
 
   @FlagSpec(altName = "out", help = "Sets project specific output path")
   private static final Flag<String> FLAG_out = Flag.value("");
@@ -44,14 +56,45 @@ public class Main {
   private static final Flag<String> FLAG_sourceRoot = Flag.value("");
   @FlagSpec(altName = "libraryname", help = "Sets the part name to use for generated files.")
   private static final Flag<String> FLAG_libraryName = Flag.value("");
+  @FlagSpec(altName = "reflectionindex",
+      help = "Index file of framework classes used to skip reflection at startup")
+  private static final Flag<String> FLAG_reflectionIndex = Flag.value("");
+
+  @FlagSpec(help = "Runs compiler as a daemon serving compile requests on --daemonport")
+  private static final Flag<Boolean> daemon = Flag.value(false);
+  @FlagSpec(help = "Local port of compiler daemon. If set, files are compiled by the daemon "
+      + "and in process when no daemon is running")
+  private static final Flag<Integer> daemonport = Flag.value(0);
+  @FlagSpec(help = "Stops compiler daemon running on --daemonport")
+  private static final Flag<Boolean> stopdaemon = Flag.value(false);
+
+  private static final Logger logger = Logger.getLogger(Main.class.getName());
 
   /**
-   * Output directory.
-   * If null, source hts directory is used for output
+   * Receives messages of a compile. Messages are logged and printed to the
+   * console in process and relayed to the client by the daemon.
    */
-  private static File outputDir;
+  interface CompilerOutput {
+    /** Logs a message. */
+    void log(Level level, String message, Throwable thrown);
+    /** Prints a compiler error. */
+    void printError(String message);
+  }
 
-  private static final Logger logger = Logger.getLogger(Main.class.getName());
+  /**
+   * Writes compiler output to logger and standard error.
+   */
+  static final CompilerOutput consoleOutput = new CompilerOutput() {
+    @Override
+    public void log(Level level, String message, Throwable thrown) {
+      logger.log(level, message, thrown);
+    }
+
+    @Override
+    public void printError(String message) {
+      System.err.println(message);
+    }
+  };
 
   /**
    * Non public constructor.
@@ -62,42 +105,162 @@ public class Main {
   public static void main(final String[] args) {
     String[] fileArgs = Flags.parseAndReturnLeftovers(args);
 
+    if (daemon.get() || stopdaemon.get()) {
+      if (daemonport.get() == 0) {
+        logger.log(Level.SEVERE, "Daemon port not specified");
+        return;
+      }
+      try {
+        if (stopdaemon.get()) {
+          CompilerDaemon.stop(daemonport.get());
+        } else {
+          loadReflectionIndex();
+          new CompilerDaemon(daemonport.get(), createRegistry()).serve();
+        }
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Compiler daemon failed", e);
+      }
+      return;
+    }
+
     if (fileArgs.length == 0) {
       logger.log(Level.SEVERE, "No input files specified");
       return;
     }
-    Set<File> srcFiles = createFileSetFromNames(fileArgs);
 
-    // Verify output directory if it was specified in flags
-    if (FLAG_out.get().length() != 0) {
-      outputDir = new File(FLAG_out.get());
-      outputDir.mkdir();
-      if (!outputDir.isDirectory()) {
-        logger.log(Level.SEVERE , "Invalid output directory." + outputDir);
+    CompileRequest request = new CompileRequest();
+    for (String filename : fileArgs) {
+      if (filename.endsWith(",")) {
+        filename = filename.substring(0, filename.length() - 1);
+      }
+      request.files.add(filename);
+    }
+    for (String importPath : normalizeImportsPath(imports.get())) {
+      request.importPaths.add(importPath);
+    }
+    request.outputDir = FLAG_out.get();
+    request.sourceRoot = FLAG_sourceRoot.get();
+    request.libraryName = FLAG_libraryName.get();
+    request.language = lang.get();
+    request.debugEnabled = debug.get();
+    request.localizationWarnEnabled = warnlocalization.get();
+    request.aslib = aslib.get();
+    request.workerCount = workers.get();
+    request.cache = cache.get();
+    request.profile = profile.get();
+    request.profileTopCount = profiletop.get();
+
+    if (daemonport.get() != 0) {
+      try {
+        CompilerDaemon.send(daemonport.get(), request, consoleOutput);
         return;
+      } catch (IOException e) {
+        logger.log(Level.INFO, "Compiler daemon not available, compiling in process. " + e);
       }
     }
 
-    File sourceRoot = null;
-    if (FLAG_sourceRoot.get().length() != 0) {
-      sourceRoot = new File(FLAG_sourceRoot.get());
+    loadReflectionIndex();
+    BuildCache buildCache = null;
+    if (request.cache.length() != 0) {
+      buildCache = new BuildCache(new File(request.cache));
+      buildCache.load();
     }
+    compile(request, createRegistry(), buildCache, null, consoleOutput);
+  }
 
+  /**
+   * Creates registry of supported output languages.
+   */
+  static BuilderFactoryRegistry createRegistry() {
     // Additional languages supported by htsc should be registered here:
     BuilderFactoryRegistry registry = new BuilderFactoryRegistry();
     registry.registerFactory("As3", new As3BuilderFactory());
     registry.registerFactory("Dart", new DartBuilderFactory());
-    String[] importsPath = normalizeImportsPath(imports.get());
+    return registry;
+  }
+
+  private static void loadReflectionIndex() {
+    if (FLAG_reflectionIndex.get().length() != 0) {
+      try {
+        UXMLCompiler.loadReflectionIndex(new File(FLAG_reflectionIndex.get()));
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Could not write reflection index "
+            + FLAG_reflectionIndex.get(), e);
+      }
+    }
+  }
+
+  /**
+   * Compiles files of a request.
+   *
+   * @param buildCache loaded build cache or null to compile all files.
+   * @param importCache cache of parsed imports shared with other compiles or
+   *     null to cache imports for this compile only.
+   * @return true if compile succeeded.
+   */
+  static boolean compile(CompileRequest request, BuilderFactoryRegistry registry,
+      BuildCache buildCache, ImportCache importCache, CompilerOutput output) {
+    Set<File> srcFiles = createFileSetFromNames(request.files);
+
+    // Verify output directory if it was specified in flags
+    File outputDir = null;
+    if (request.outputDir.length() != 0) {
+      outputDir = new File(request.outputDir);
+      outputDir.mkdir();
+      if (!outputDir.isDirectory()) {
+        output.log(Level.SEVERE , "Invalid output directory." + outputDir, null);
+        return false;
+      }
+    }
+
+    File sourceRoot = null;
+    if (request.sourceRoot.length() != 0) {
+      sourceRoot = new File(request.sourceRoot);
+    }
+
+    String[] importsPath = request.importPaths.toArray(new String[request.importPaths.size()]);
     CommandLineConfiguration config = new Main.CommandLineConfiguration(srcFiles, outputDir,
-        sourceRoot, FLAG_libraryName.get(), importsPath, lang.get(), debug.get(),
-        warnlocalization.get());
+        sourceRoot, request.libraryName, importsPath, request.language, request.debugEnabled,
+        request.localizationWarnEnabled);
     UXMLCompiler comp = new UXMLCompiler(config, registry);
-    if (!comp.compile()) {
+    comp.setWorkerCount(request.workerCount);
+    if (importCache != null) {
+      comp.setImportCache(importCache);
+    }
+    if (buildCache != null) {
+      buildCache.resetStamps();
+      comp.setBuildCache(buildCache);
+    }
+    if (request.profile.length() != 0) {
+      comp.setProfile(new CompileProfile());
+    }
+    boolean success = comp.compile();
+    output.log(Level.INFO, String.format("Wrote %d of %d generated files",
+        comp.getWrittenOutputs().size(), comp.getOutputs().size()), null);
+    if (comp.getProfile() != null) {
+      writeProfile(comp.getProfile(), request, output);
+    }
+    // Caches are shared by concurrent requests in daemon mode, counts are
+    // taken from this compile only.
+    if (comp.getImportCache() != null) {
+      output.log(Level.INFO, String.format("Import cache: %d reused, %d parsed",
+          comp.getImportHitCount(), comp.getImportMissCount()), null);
+    }
+    if (buildCache != null) {
+      output.log(Level.INFO, String.format("Build cache: %d up to date, %d compiled",
+          comp.getBuildCacheHitCount(), comp.getBuildCacheMissCount()), null);
+      try {
+        buildCache.save();
+      } catch (IOException e) {
+        output.log(Level.WARNING, "Could not write build cache " + request.cache, e);
+      }
+    }
+    if (!success) {
       for (CompilerError error : comp.getErrors()) {
-        System.err.println(error.toString());
+        output.printError(error.toString());
       }
     } else {
-      if (!aslib.get().equals("")) {
+      if (!request.aslib.equals("")) {
         StringBuilder sb = new StringBuilder();
         try {
 
@@ -114,27 +277,47 @@ public class Main {
           String aslibContent = sb.toString();
 
           // Now write aslib file
-          File aslibFile = new File(aslib.get());
+          File aslibFile = new File(request.aslib);
           if (aslibFile.exists()) {
             aslibFile.delete();
           }
           Files.write(aslibContent, aslibFile, Charset.defaultCharset());
         } catch (IOException e) {
-          System.err.println(String.format("Could not generate aslib file. %s", e.toString()));
+          output.printError(String.format("Could not generate aslib file. %s", e.toString()));
         }
       }
     }
+    return success;
+  }
+
+  /**
+   * Logs profile summary and writes profile report of request.
+   */
+  private static void writeProfile(CompileProfile compileProfile, CompileRequest request,
+      CompilerOutput output) {
+    output.log(Level.INFO, compileProfile.formatSummary(request.profileTopCount), null);
+    Writer writer = null;
+    try {
+      writer = Files.newWriter(new File(request.profile), Charset.forName("UTF-8"));
+      if (request.profile.endsWith(".csv")) {
+        compileProfile.writeCsv(writer);
+      } else {
+        compileProfile.writeJson(writer);
+      }
+      writer.close();
+    } catch (IOException e) {
+      output.log(Level.WARNING, "Could not write profile " + request.profile, e);
+    } finally {
+      Closeables.closeQuietly(writer);
+    }
   }
 
   /**
    * Creates a Set of File objects from an array of file names.
    */
-  private static Set<File> createFileSetFromNames(String[] fileArgs) {
+  private static Set<File> createFileSetFromNames(List<String> fileArgs) {
     Set<File> srcFiles = Sets.newHashSet();
     for (String filename : fileArgs) {
-      if (filename.endsWith(",")) {
-        filename = filename.substring(0, filename.length() - 1);
-      }
       srcFiles.add(new File(filename));
     }
     return srcFiles;
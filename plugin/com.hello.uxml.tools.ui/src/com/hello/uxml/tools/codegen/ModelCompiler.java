@@ -7,10 +7,12 @@ import com.hello.uxml.tools.framework.Application;
 import com.hello.uxml.tools.framework.Command;
 import com.hello.uxml.tools.framework.Controller;
 import com.hello.uxml.tools.framework.OverlayContainer;
+import com.hello.uxml.tools.framework.PropertyAccessor;
 import com.hello.uxml.tools.framework.PropertyBinding;
 import com.hello.uxml.tools.framework.PropertyData;
 import com.hello.uxml.tools.framework.PropertyDefinition;
 import com.hello.uxml.tools.framework.PropertyFlags;
+import com.hello.uxml.tools.framework.ReflectivePropertyAccessor;
 import com.hello.uxml.tools.framework.UIElement;
 import com.hello.uxml.tools.framework.UxmlElement;
 import com.hello.uxml.tools.framework.effects.Effect;
@@ -172,12 +174,18 @@ public class ModelCompiler implements IBindingContext {
   /** Name of source file used to annotate errors. **/
   private String sourceName;
 
+  /** Profile record of source file, null if profiling is disabled. */
+  private CompileProfile.FileRecord profileRecord;
+
   /** Compiler configuration */
   private Configuration targetConfig;
 
   /** holds localization table from xlb files. */
   private Map<String, Model> locaTable = new HashMap<String, Model>();
 
+  /** Maps localization id to bundle type name. */
+  private Map<String, String> locaTypes = new HashMap<String, String>();
+
   /**
    * Stack of chrome elements in current compile tree. Used to resolve bindings
    * to chrome targets.
@@ -215,7 +223,7 @@ public class ModelCompiler implements IBindingContext {
   /**
    * Initializes application environment for model compiler.
    */
-  public static void initEnv() {
+  public static synchronized void initEnv() {
     if (compileApp == null) {
       compileApp = new CompileApp();
       compileApp.verifyClassLoaded(OverlayContainer.class);
@@ -229,6 +237,13 @@ public class ModelCompiler implements IBindingContext {
     sourceName = value;
   }
 
+  /**
+   * Sets profile record used to time chrome compilation.
+   */
+  public void setProfileRecord(CompileProfile.FileRecord value) {
+    profileRecord = value;
+  }
+
   /**
    * Constructor.
    */
@@ -790,7 +805,13 @@ public class ModelCompiler implements IBindingContext {
       if (chromeEventBindings != null) {
         chromeEventBindings.clear();
       }
+      if (profileRecord != null) {
+        profileRecord.startPhase(CompileProfile.Phase.CHROME);
+      }
       Reference varReference = chromeCompiler.compile(resourceNode, codeBlock);
+      if (profileRecord != null) {
+        profileRecord.endPhase(CompileProfile.Phase.CHROME);
+      }
       if (varReference != null) {
         id = chromeCompiler.getId();
         resInfo = new ResourceInfo(id, chromeCompiler.getKey(),
@@ -909,22 +930,22 @@ public class ModelCompiler implements IBindingContext {
     if (typeName.equals(RESOURCES_NODE_NAME) || typeName.equals(INTERFACE_NODE_NAME)) {
       boolean isInterfaceResource = importedModel.getTypeName().equals(INTERFACE_NODE_NAME);
 
-      for (int resIndex = 0; resIndex < importedModel.getChildCount(); ++resIndex) {
-        Model resourceNode = importedModel.getChild(resIndex);
-        if (resourceNode.hasProperty(ID_ATTRIBUTE)) {
-          String id = resourceNode.getStringProperty(ID_ATTRIBUTE);
-          // TODO(ferhat): validateIdSyntax
-          ResourceInfo resInfo = new ResourceInfo(id,
-              packageBuilder.createStringLiteralExpression(id), null, resourceNode);
-          if (isInterfaceResource) {
-            resInfo.setInterface(resourceNode.getParent().getStringProperty("name"));
-            interfaceResourceLookup.put(id, resInfo);
-          } else {
-            // A resource might be defined both in interface and
-            // a shared resource file. Don't add to both, interface takes precendence.
-            if (!interfaceResourceLookup.containsKey(id)) {
-              importedResourceLookup.put(id, resInfo);
-            }
+      // Resource table of shared imports is resolved once per compile run.
+      for (Map.Entry<String, Model> resource
+          : importer.getResourceTable(importedModel).entrySet()) {
+        String id = resource.getKey();
+        Model resourceNode = resource.getValue();
+        // TODO(ferhat): validateIdSyntax
+        ResourceInfo resInfo = new ResourceInfo(id,
+            packageBuilder.createStringLiteralExpression(id), null, resourceNode);
+        if (isInterfaceResource) {
+          resInfo.setInterface(resourceNode.getParent().getStringProperty("name"));
+          interfaceResourceLookup.put(id, resInfo);
+        } else {
+          // A resource might be defined both in interface and
+          // a shared resource file. Don't add to both, interface takes precendence.
+          if (!interfaceResourceLookup.containsKey(id)) {
+            importedResourceLookup.put(id, resInfo);
           }
         }
       }
@@ -941,8 +962,9 @@ public class ModelCompiler implements IBindingContext {
         Model msgNode = messages.getChild(resIndex);
         if (msgNode.getTypeName().equals("msg")) {
           String id = msgNode.getStringProperty(NAME_ATTRIBUTE);
-          msgNode.createProperty(TYPE_ATTRIBUTE, locaTypeName);
+          // Imported models are shared, keep bundle type out of msgNode.
           locaTable.put(id, msgNode);
+          locaTypes.put(id, locaTypeName);
         }
       }
     }
@@ -1512,11 +1534,7 @@ public class ModelCompiler implements IBindingContext {
               bindingSourceExpr, bindingParser.getTransformClass(),
               bindingParser.getTransformFunction());
         } else {
-          Expression[] chainExpression = new Expression[parts.length];
-          for (int p = 1; p < parts.length; ++p) {
-            chainExpression[p] = new StringLiteralExpression(parts[p]);
-          }
-          chainExpression[0] = createPropDefExpression(propDef);
+          Expression[] chainExpression = createBindingChain(chromeDef.getTargetType(), parts, 0);
           modelBinding = new ModelPropertyBinding(ownerReference,
               ownerReference, property.getName(), new Reference(CHROME_METHOD_TARGET_PARAM_NAME),
               chainExpression, bindingParser.getTransformClass(),
@@ -1595,8 +1613,7 @@ public class ModelCompiler implements IBindingContext {
         if (!locaTable.containsKey(localizationId)) {
           addError(ErrorCode.UNKNOWN_LOCALIZATION_ID, str, refNode);
         } else {
-          Model msgNode = locaTable.get(localizationId);
-          TypeToken bundleType = TypeToken.fromFullName(msgNode.getStringProperty(TYPE_ATTRIBUTE));
+          TypeToken bundleType = TypeToken.fromFullName(locaTypes.get(localizationId));
           packageBuilder.addImport(bundleType);
           return packageBuilder.createStaticMethodCall(bundleType, "getMsg", new Expression[] {
               packageBuilder.createGetStaticFieldExpression(bundleType, localizationId)});
@@ -1790,10 +1807,7 @@ public class ModelCompiler implements IBindingContext {
       } else {
         // Not propDef, not attached propdef. In that case take the
         // sourcePath parts and place it in an array as bindSource.
-        sourceChain = new Expression[parts.length - 1];
-        for (int p = 1; p < parts.length; ++p) {
-          sourceChain[p - 1] = packageBuilder.createStringLiteralExpression(parts[p]);
-        }
+        sourceChain = createBindingChain(elementTypeToToken(sourceModel.getTypeName()), parts, 1);
       }
     }
 
@@ -1967,6 +1981,31 @@ public class ModelCompiler implements IBindingContext {
     return modelReflector.getPropDef(ownerType, propertyName);
   }
 
+  /**
+   * Creates property chain of a binding path starting at startIndex.
+   *
+   * <p>Parts that are properties of a known element type are emitted as
+   * PropertyDefinition references so the binding doesn't resolve them by
+   * name at runtime. The remaining parts are emitted as names.
+   *
+   * @param ownerType Type of binding source or null if unknown.
+   */
+  private Expression[] createBindingChain(TypeToken ownerType, String[] parts, int startIndex) {
+    Expression[] chain = new Expression[parts.length - startIndex];
+    for (int p = startIndex; p < parts.length; ++p) {
+      PropertyDefinition propDef = (ownerType == null) ? null
+          : modelReflector.getPropDef(ownerType, parts[p]);
+      if (propDef != null) {
+        chain[p - startIndex] = createPropDefExpression(propDef);
+        ownerType = TypeToken.fromClass(propDef.getDataType());
+      } else {
+        chain[p - startIndex] = packageBuilder.createStringLiteralExpression(parts[p]);
+        ownerType = null;
+      }
+    }
+    return chain;
+  }
+
   /**
    * Returns owner type from id.
    * <p>Example: "myButton.transform" will return Transform type token.
@@ -2483,6 +2522,11 @@ public class ModelCompiler implements IBindingContext {
     }
     }
 
+    @Override
+    protected PropertyAccessor createPropertyAccessor(Class<?> ownerClass, String keyName) {
+      return new ReflectivePropertyAccessor(ownerClass, keyName);
+    }
+
     /**
      * Verifies that a class has been loaded. Classes have to be loaded for
      * PropertyDefinitions to be registered.
@@ -1,7 +1,6 @@
 package com.hello.uxml.tools.codegen;
 
 import com.google.common.collect.Lists;
-//import com.google.common.hash.Hashing;
 import com.google.common.io.Closeables;
 import com.hello.uxml.tools.framework.Application;
 import com.hello.uxml.tools.framework.Border;
@@ -80,19 +79,28 @@ import com.hello.uxml.tools.codegen.dom.ModelReflector;
 import com.hello.uxml.tools.codegen.emit.BuilderFactory;
 import com.hello.uxml.tools.codegen.emit.BuilderFactoryRegistry;
 import com.hello.uxml.tools.codegen.emit.ClassBuilder;
+import com.hello.uxml.tools.codegen.emit.OutputBuffer;
 import com.hello.uxml.tools.codegen.emit.PackageBuilder;
 import com.hello.uxml.tools.codegen.emit.SourceWriter;
 
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -141,11 +149,55 @@ public class UXMLCompiler {
    */
   private final List<String> outputMd5 = Lists.newArrayList();
 
+  /**
+   * Subset of outputs whose contents changed and were written to disk.
+   */
+  private final List<File> writtenOutputs = Lists.newArrayList();
+
+  /**
+   * Number of files compiled concurrently. 1 compiles sequentially on the
+   * calling thread.
+   */
+  private int workerCount = 1;
+
+  /**
+   * Optional cache used to skip up-to-date source files.
+   */
+  private BuildCache buildCache;
+
+  /**
+   * Cache of parsed import files. Created for each compile run unless set.
+   */
+  private ImportCache importCache;
+
+  /** Build and import cache lookups made by this compile. */
+  private int buildCacheHitCount;
+  private int buildCacheMissCount;
+  private int importHitCount;
+  private int importMissCount;
+
+  /**
+   * Optional profile that records time spent compiling each file.
+   */
+  private CompileProfile profile;
+
   /**
    * ModelReflector used for introspection by ModelParser and ModelCompiler.
    */
   private static ModelReflector modelReflector;
 
+  /**
+   * SAX parser reused by all files compiled on the same thread.
+   */
+  private static final ThreadLocal<SAXParser> threadParser = new ThreadLocal<SAXParser>();
+
+  /** Output buffer reused by all compiles on a thread. */
+  private static final ThreadLocal<OutputBuffer> threadOutput = new ThreadLocal<OutputBuffer>() {
+    @Override protected OutputBuffer initialValue() {
+      return new OutputBuffer();
+    }
+  };
+
   /**
    * Creates hts compiler for given configuration and language registry.
    */
@@ -154,6 +206,59 @@ public class UXMLCompiler {
     this.registry = registry;
   }
 
+  /**
+   * Sets number of files to compile concurrently. A value less than 1 uses
+   * one worker per available processor.
+   */
+  public void setWorkerCount(int value) {
+    workerCount = (value < 1) ? Runtime.getRuntime().availableProcessors() : value;
+  }
+
+  /**
+   * Returns number of files compiled concurrently.
+   */
+  public int getWorkerCount() {
+    return workerCount;
+  }
+
+  /**
+   * Sets build cache used to skip compilation of up-to-date files. Successful
+   * compiles are recorded in the cache, the caller is responsible for saving it.
+   */
+  public void setBuildCache(BuildCache cache) {
+    buildCache = cache;
+  }
+
+  /**
+   * Sets cache of parsed import files. Allows sharing parsed imports across
+   * compiler instances.
+   */
+  public void setImportCache(ImportCache cache) {
+    importCache = cache;
+  }
+
+  /**
+   * Returns cache of parsed import files used by compile.
+   */
+  public ImportCache getImportCache() {
+    return importCache;
+  }
+
+  /**
+   * Sets profile used to record time, allocation and output size of each
+   * compiled file and phase. Profiling is disabled if null.
+   */
+  public void setProfile(CompileProfile value) {
+    profile = value;
+  }
+
+  /**
+   * Returns compile profile or null if profiling is disabled.
+   */
+  public CompileProfile getProfile() {
+    return profile;
+  }
+
   /**
    * Compiles a set of hts files specified in Configuration.
    * 
@@ -176,18 +281,147 @@ public class UXMLCompiler {
       return false;
     }
 
-    // Compile each hts source file
-    for (File htsFile : targetConfig.getSourceFiles()) {
-      // continue compilation even on failure so we can collect warnings
-      // and errors for all files
-      success &= compileHts(targetConfig, htsFile, factory);
+    if (importCache == null) {
+      importCache = new ImportCache();
+    }
+
+    // Compile each hts source file. Continue compilation even on failure so
+    // we can collect warnings and errors for all files.
+    List<File> sourceFiles = Lists.newArrayList(targetConfig.getSourceFiles());
+    List<CompileUnit> units = Lists.newArrayList();
+    String configKey = (buildCache == null) ? null : BuildCache.getConfigKey(targetConfig);
+    for (File htsFile : sourceFiles) {
+      units.add(new CompileUnit(htsFile, configKey));
+    }
+    if (workerCount > 1 && units.size() > 1) {
+      compileParallel(units, factory);
+    } else {
+      for (CompileUnit unit : units) {
+        compileUnit(unit, factory);
+      }
+    }
+
+    // Merge results in source order so errors and outputs are deterministic.
+    for (CompileUnit unit : units) {
+      errors.addAll(unit.errors);
+      if (unit.buildCacheChecked) {
+        if (unit.cached) {
+          ++buildCacheHitCount;
+        } else {
+          ++buildCacheMissCount;
+        }
+      }
+      importHitCount += unit.importCounts.getHitCount();
+      importMissCount += unit.importCounts.getMissCount();
+      if (unit.output != null) {
+        outputs.add(unit.output);
+        outputMd5.add(unit.outputMd5);
+        if (unit.written) {
+          writtenOutputs.add(unit.output);
+        }
+      }
+      success &= unit.success;
     }
     return success;
   }
 
+  /**
+   * Compiles units on a pool of workerCount threads.
+   */
+  private void compileParallel(List<CompileUnit> units, final BuilderFactory factory) {
+    // Initialize shared environment and reflection caches before fanning out
+    // so workers only read static state.
+    ModelCompiler.initEnv();
+    getReflector().cacheAll();
+
+    ExecutorService pool = Executors.newFixedThreadPool(Math.min(workerCount, units.size()));
+    try {
+      List<Future<?>> futures = Lists.newArrayList();
+      for (final CompileUnit unit : units) {
+        futures.add(pool.submit(new Runnable() {
+          @Override
+          public void run() {
+            compileUnit(unit, factory);
+          }
+        }));
+      }
+      for (int i = 0; i < futures.size(); ++i) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException e) {
+          CompileUnit unit = units.get(i);
+          unit.errors.add(new CompilerError(String.format("Compile of %s failed",
+              unit.source.getName()), e));
+          unit.success = false;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          units.get(i).errors.add(new CompilerError("Compile interrupted", e));
+          units.get(i).success = false;
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
   /**
    * Compiles a single Hts markup file.
-   * 
+   *
+   * @param unit
+   *            Markup file and compile results
+   * @param factory
+   *            Target language {@link PackageBuilder} factory
+   */
+  private void compileUnit(CompileUnit unit, BuilderFactory factory) {
+    if (profile != null) {
+      unit.profileRecord = profile.startFile(unit.source);
+    }
+    try {
+      compileUnitOrSkip(unit, factory);
+    } finally {
+      if (unit.profileRecord != null) {
+        unit.profileRecord.setOutputBytes(unit.outputBytes);
+        profile.finishFile(unit.profileRecord, unit.success);
+      }
+    }
+  }
+
+  private void compileUnitOrSkip(CompileUnit unit, BuilderFactory factory) {
+    if (buildCache != null) {
+      BuildCache.Entry entry = buildCache.getUpToDate(unit.configKey, unit.source);
+      unit.buildCacheChecked = true;
+      if (entry != null) {
+        unit.cached = true;
+        unit.output = entry.getOutput();
+        unit.outputMd5 = entry.getOutputMd5();
+        unit.success = true;
+        if (unit.profileRecord != null) {
+          unit.profileRecord.setCached(true);
+          unit.outputBytes = unit.output.length();
+        }
+        return;
+      }
+    }
+    unit.success = compileHts(targetConfig, unit.source, factory, unit);
+
+    // Record imports even if compile failed so fixing an import rebuilds
+    // the files that failed on it.
+    if (buildCache != null) {
+      List<File> imports = Lists.newArrayList(unit.dependencies);
+      imports.addAll(unit.unresolvedImports);
+      buildCache.recordImports(unit.source, imports);
+    }
+
+    // Only record clean compiles so warnings are reported again on next build.
+    if (buildCache != null && unit.success && unit.errors.isEmpty() && unit.output != null) {
+      buildCache.update(unit.configKey, unit.source, unit.dependencies, unit.output,
+          unit.outputMd5);
+    }
+  }
+
+  /**
+   * Compiles a single Hts markup file.
+   *
    * @param htsFile
    *            Markup file
    * @param factory
@@ -195,7 +429,8 @@ public class UXMLCompiler {
    * @return success/fail of compilations
    */
   private boolean compileHts(Configuration targetConfig, File htsFile,
-      BuilderFactory factory) {
+      BuilderFactory factory, CompileUnit unit) {
+    List<CompilerError> errors = unit.errors;
     if (!htsFile.canRead()) {
       errors.add(new CompilerError(String.format("\"%s\": no such file",
           htsFile.getName())));
@@ -204,10 +439,7 @@ public class UXMLCompiler {
 
     // Create Parser
     try {
-      // SAXParser parser =
-      // SecureXMLParsing.getSAXParserFactory().newSAXParser();
-      SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
-      return compileHts(targetConfig, htsFile, factory, parser);
+      return compileHts(targetConfig, htsFile, factory, getParser(), unit);
     } catch (ParserConfigurationException e) {
       errors.add(new CompilerError("No XML parser found.", e));
       return false;
@@ -217,14 +449,37 @@ public class UXMLCompiler {
     }
   }
 
+  /**
+   * Returns SAX parser for the calling thread.
+   */
+  private static SAXParser getParser() throws ParserConfigurationException, SAXException {
+    SAXParser parser = threadParser.get();
+    if (parser == null) {
+      // parser = SecureXMLParsing.getSAXParserFactory().newSAXParser();
+      parser = SAXParserFactory.newInstance().newSAXParser();
+      threadParser.set(parser);
+    } else {
+      parser.reset();
+    }
+    return parser;
+  }
+
   /**
    * Compiles a single Hts markup file by creating a documentBuilder and
    * writing to a target file.
    */
   private boolean compileHts(Configuration targetConfig, File htsFile,
-      BuilderFactory factory, SAXParser saxParser) {
+      BuilderFactory factory, SAXParser saxParser, CompileUnit unit) {
+    List<CompilerError> errors = unit.errors;
     ModelCompiler.initEnv();
+    CompileProfile.FileRecord record = unit.profileRecord;
+    if (record != null) {
+      record.startPhase(CompileProfile.Phase.PARSE);
+    }
     Model markupModel = markupModelFromFile(saxParser, htsFile, errors);
+    if (record != null) {
+      record.endPhase(CompileProfile.Phase.PARSE);
+    }
     if (markupModel == null) {
       return false;
     }
@@ -240,14 +495,24 @@ public class UXMLCompiler {
       return i.verify(errors);
     }
 
-    SourceWriter writer = new SourceWriter();
+    OutputBuffer output = threadOutput.get();
+    output.reset();
+    SourceWriter writer = new SourceWriter(output, Charset.defaultCharset());
     PackageBuilder packageBuilder = factory.createPackageBuilder();
     packageBuilder.setPartName(targetConfig.getLibraryName());
-    if (!compileHts(targetConfig, markupModel, packageBuilder, writer,
-        new ModelImporter(targetConfig, htsFile), htsFile.getName())) {
+    ModelImporter importer = new ModelImporter(targetConfig, htsFile, importCache,
+        unit.importCounts);
+    boolean compiled = compileHts(targetConfig, markupModel, packageBuilder, writer,
+        importer, htsFile.getName(), errors, record);
+    unit.dependencies.addAll(importer.getImportedFiles());
+    unit.unresolvedImports.addAll(importer.getUnresolvedFiles());
+    if (!compiled) {
       return false;
     }
     File targetFile = createTargetFile(htsFile, packageBuilder);
+    if (record != null) {
+      record.startPhase(CompileProfile.Phase.WRITE);
+    }
     try {
       if (!(targetFile.getParentFile().exists() && targetFile
           .getParentFile().isDirectory())) {
@@ -257,29 +522,38 @@ public class UXMLCompiler {
               targetFile.getParentFile())));
         }
       }
-      if (targetFile.exists()) {
-        if (!targetFile.delete()) {
-          errors.add(new CompilerError(
-              "Could not delete old target file"));
+      writer.close();
+
+      // Leave identical outputs untouched so their timestamps don't trigger
+      // downstream rebuilds.
+      if (!output.contentEquals(targetFile)) {
+        if (targetFile.exists()) {
+          if (!targetFile.delete()) {
+            errors.add(new CompilerError(
+                "Could not delete old target file"));
+          }
         }
-      }
-      String content = writer.toString();
 
-      // change from Files.write to internal method to support
-      // Java1.5/MacOSX build of plugin
-      // Files.write(content, targetFile, Charset.defaultCharset());
-      OutputStream outStream = new FileOutputStream(targetFile);
-      try {
-        outStream.write(content.getBytes(Charset.defaultCharset()
-            .name()));
-      } finally {
-        outStream.close();
+        // change from Files.write to internal method to support
+        // Java1.5/MacOSX build of plugin
+        // Files.write(content, targetFile, Charset.defaultCharset());
+        FileChannel channel = new FileOutputStream(targetFile).getChannel();
+        try {
+          output.writeTo(channel);
+        } finally {
+          channel.close();
+        }
+        unit.written = true;
       }
-      outputs.add(targetFile);
-      outputMd5.add(calcMd5(content));
+      unit.output = targetFile;
+      unit.outputMd5 = writer.getMd5();
+      unit.outputBytes = writer.getByteCount();
     } catch (IOException e) {
       errors.add(new CompilerError(e));
     }
+    if (record != null) {
+      record.endPhase(CompileProfile.Phase.WRITE);
+    }
     return true;
   }
 
@@ -288,37 +562,54 @@ public class UXMLCompiler {
    */
   private static Model markupModelFromFile(SAXParser saxParser, File htsFile,
       List<CompilerError> errors) {
-    Model markupModel = null;
     FileReader reader = null;
     try {
-      ModelParser modelParser = createModelParser(errors);
       reader = new FileReader(htsFile);
-      saxParser.parse(new InputSource(reader), modelParser);
-      markupModel = modelParser.getModel();
+      return markupModelFromSource(saxParser, new InputSource(reader), htsFile.getName(),
+          errors);
     } catch (IOException e) {
       CompilerError expError = new CompilerError(e);
       expError.setSource(htsFile.getName());
       errors.add(expError);
       return null;
+    } finally {
+      Closeables.closeQuietly(reader);
+    }
+  }
+
+  /**
+   * Creates DOM from contents of a markup file.
+   */
+  static Model markupModelFromBytes(SAXParser saxParser, byte[] content, String sourceName,
+      List<CompilerError> errors) {
+    Reader reader = new InputStreamReader(new ByteArrayInputStream(content),
+        Charset.defaultCharset());
+    return markupModelFromSource(saxParser, new InputSource(reader), sourceName, errors);
+  }
+
+  private static Model markupModelFromSource(SAXParser saxParser, InputSource source,
+      String sourceName, List<CompilerError> errors) {
+    try {
+      ModelParser modelParser = createModelParser(errors);
+      saxParser.parse(source, modelParser);
+      return modelParser.getModel();
+    } catch (IOException e) {
+      CompilerError expError = new CompilerError(e);
+      expError.setSource(sourceName);
+      errors.add(expError);
+      return null;
     } catch (SAXException e) {
       // Add error if ModelParser has not already reported it.
       if (errors.size() == 0) {
         CompilerError parseError = new CompilerError("SAX parse error:"
             + e.toString());
-        parseError.setSource(htsFile.getName());
+        parseError.setSource(sourceName);
         errors.add(parseError);
       }
       return null;
-    } finally {
-      Closeables.closeQuietly(reader);
     }
-    return markupModel;
   }
 
-  private String calcMd5(String data) {
-    return String.valueOf(data.hashCode());
-    // return Hashing.md5().hashString(data, Charsets.UTF_8).toString();
-  }
 
   /**
    * Compiles an hts model using a packageBuilder and writes output to
@@ -326,12 +617,27 @@ public class UXMLCompiler {
    */
   private boolean compileHts(Configuration targetConfig, Model htsModel,
       PackageBuilder packageBuilder, SourceWriter writer,
-      IUXMLImporter importer, String sourceName) {
-    if (!buildPackage(targetConfig, htsModel, packageBuilder, importer,
-        sourceName)) {
+      IUXMLImporter importer, String sourceName, List<CompilerError> errors,
+      CompileProfile.FileRecord record) {
+    if (record != null) {
+      record.startPhase(CompileProfile.Phase.COMPILE);
+    }
+    boolean built = buildPackage(targetConfig, htsModel, packageBuilder, importer,
+        sourceName, errors, record);
+    if (record != null) {
+      record.endPhase(CompileProfile.Phase.COMPILE);
+    }
+    if (!built) {
       return false;
     }
-    return packageBuilder.write(writer);
+    if (record != null) {
+      record.startPhase(CompileProfile.Phase.EMIT);
+    }
+    boolean written = packageBuilder.write(writer);
+    if (record != null) {
+      record.endPhase(CompileProfile.Phase.EMIT);
+    }
+    return written;
   }
 
   /**
@@ -343,11 +649,15 @@ public class UXMLCompiler {
    *            builder for code generation
    * @param sourceName
    *            name of source file used for compiler error descriptions.
+   * @param errors
+   *            error collection of the file being compiled.
+   * @param record
+   *            profile record of the file or null if profiling is disabled.
    * @return whether code was successfully generated
    */
   private boolean buildPackage(Configuration targetConfig, Model htsModel,
       PackageBuilder packageBuilder, IUXMLImporter importer,
-      String sourceName) {
+      String sourceName, List<CompilerError> errors, CompileProfile.FileRecord record) {
 
     String elementName = htsModel.getStringProperty(ELEMENT_NAME_ID);
     String packageName = getPackageName(elementName);
@@ -360,6 +670,7 @@ public class UXMLCompiler {
     ModelCompiler modelComp = new ModelCompiler(htsModel, classBuilder,
         getReflector(), errors, importer, targetConfig);
     modelComp.setSourceName(sourceName);
+    modelComp.setProfileRecord(record);
     return modelComp.compile();
   }
 
@@ -439,12 +750,28 @@ public class UXMLCompiler {
     return modelParser;
   }
 
+  /**
+   * Loads reflection index of framework classes from indexFile. If the file
+   * is missing or was written by a different framework build, the index is
+   * created by reflection and saved to indexFile for the next run.
+   *
+   * @return true if index was loaded from file.
+   */
+  public static synchronized boolean loadReflectionIndex(File indexFile) throws IOException {
+    ModelReflector reflector = getReflector();
+    if (reflector.loadIndex(indexFile)) {
+      return true;
+    }
+    reflector.saveIndex(indexFile);
+    return false;
+  }
+
   /**
    * Returns a model reflector for UXML.
    * 
    * @return model reflector.
    */
-  public static ModelReflector getReflector() {
+  public static synchronized ModelReflector getReflector() {
     if (modelReflector == null) {
       modelReflector = new ModelReflector();
       modelReflector.register(Application.class);
@@ -537,6 +864,44 @@ public class UXMLCompiler {
     return outputs;
   }
 
+  /**
+   * Returns output files that were written by this compile. Outputs that
+   * were up to date or regenerated with identical contents are not included.
+   */
+  public List<File> getWrittenOutputs() {
+    return writtenOutputs;
+  }
+
+  /**
+   * Returns number of sources found up to date in build cache by this
+   * compile.
+   */
+  public int getBuildCacheHitCount() {
+    return buildCacheHitCount;
+  }
+
+  /**
+   * Returns number of sources this compile looked up in build cache and
+   * compiled.
+   */
+  public int getBuildCacheMissCount() {
+    return buildCacheMissCount;
+  }
+
+  /**
+   * Returns number of imports this compile read from import cache.
+   */
+  public int getImportHitCount() {
+    return importHitCount;
+  }
+
+  /**
+   * Returns number of imports this compile parsed.
+   */
+  public int getImportMissCount() {
+    return importMissCount;
+  }
+
   /**
    * Returns list of md5 checksums for output files.
    */
@@ -544,6 +909,31 @@ public class UXMLCompiler {
     return outputMd5;
   }
 
+  /**
+   * Holds the source file and compile results of a single markup file.
+   */
+  private static class CompileUnit {
+    private final File source;
+    private final String configKey;
+    private final List<CompilerError> errors = Lists.newArrayList();
+    private final List<File> dependencies = Lists.newArrayList();
+    private final List<File> unresolvedImports = Lists.newArrayList();
+    private final ImportCache.Counts importCounts = new ImportCache.Counts();
+    private boolean buildCacheChecked;
+    private boolean cached;
+    private File output;
+    private String outputMd5;
+    private long outputBytes;
+    private CompileProfile.FileRecord profileRecord;
+    private boolean written;
+    private boolean success;
+
+    CompileUnit(File source, String configKey) {
+      this.source = source;
+      this.configKey = configKey;
+    }
+  }
+
   /**
    * Provides hts import service to model compiler.
    * 
@@ -553,12 +943,31 @@ public class UXMLCompiler {
 
     private final Configuration config;
     private final File baseFile;
+    private final ImportCache importCache;
+    private final ImportCache.Counts importCounts;
+    private final List<File> importedFiles = Lists.newArrayList();
+    private final List<File> unresolvedFiles = Lists.newArrayList();
+
+    /**
+     * Constructor.
+     *
+     * @param importCache cache of parsed imports or null to parse every import.
+     */
+    public ModelImporter(Configuration compileConfig, File baseFile, ImportCache importCache) {
+      this(compileConfig, baseFile, importCache, null);
+    }
 
     /**
      * Constructor.
+     *
+     * @param importCache cache of parsed imports or null to parse every import.
+     * @param importCounts counts of import cache lookups or null.
      */
-    public ModelImporter(Configuration compileConfig, File baseFile) {
+    public ModelImporter(Configuration compileConfig, File baseFile, ImportCache importCache,
+        ImportCache.Counts importCounts) {
       this.baseFile = baseFile;
+      this.importCache = importCache;
+      this.importCounts = importCounts;
       config = compileConfig;
     }
 
@@ -568,24 +977,30 @@ public class UXMLCompiler {
     @Override
     public Model importModel(String path, List<CompilerError> errors) {
       try {
-        // SAXParser parser =
-        // SecureXMLParsing.getSAXParserFactory().newSAXParser();
-        SAXParser parser = SAXParserFactory.newInstance()
-            .newSAXParser();
+        // Imports are parsed after the importing file, so the thread's
+        // parser is free for reuse.
+        SAXParser parser = getParser();
         File file = new File(baseFile.getParentFile(), path);
+        List<File> candidates = Lists.newArrayList(file);
         if (!file.exists()) {
           String[] importPaths = config.getImportPaths();
           for (String importPath : importPaths) {
             String importPathTrimmed = importPath.trim();
             file = new File(importPathTrimmed, path);
+            candidates.add(file);
             if (file.exists()) {
               break;
             }
           }
         }
         if (!file.exists()) {
+          unresolvedFiles.addAll(candidates);
           return null;
         }
+        importedFiles.add(file);
+        if (importCache != null) {
+          return importCache.getModel(file, parser, errors, importCounts);
+        }
         return UXMLCompiler.markupModelFromFile(parser, file, errors);
       } catch (ParserConfigurationException e) {
         errors.add(new CompilerError("No XML parser found.", e));
@@ -595,5 +1010,28 @@ public class UXMLCompiler {
         return null;
       }
     }
+
+    /**
+     * @see IUXMLImporter
+     */
+    @Override
+    public Map<String, Model> getResourceTable(Model importedModel) {
+      return (importCache != null) ? importCache.getResourceTable(importedModel)
+          : ImportCache.createResourceTable(importedModel);
+    }
+
+    /**
+     * Returns files resolved by importModel calls.
+     */
+    public List<File> getImportedFiles() {
+      return importedFiles;
+    }
+
+    /**
+     * Returns locations searched for imports that were not found.
+     */
+    public List<File> getUnresolvedFiles() {
+      return unresolvedFiles;
+    }
   }
 }
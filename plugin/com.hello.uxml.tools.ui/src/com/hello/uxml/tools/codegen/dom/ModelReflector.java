@@ -2,6 +2,8 @@ package com.hello.uxml.tools.codegen.dom;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
 import com.hello.uxml.tools.framework.CollectionNode;
 import com.hello.uxml.tools.framework.ContentNode;
 import com.hello.uxml.tools.framework.PropertyDefinition;
@@ -11,17 +13,51 @@ import com.hello.uxml.tools.framework.events.EventDefinition;
 import com.hello.uxml.tools.framework.events.EventManager;
 import com.hello.uxml.tools.codegen.emit.TypeToken;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.CodeSource;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Holds java classes and reflection cache for ModelParser.
  *
+ * <p>Members of each registered class are indexed once by lower case name.
+ * The index can be saved to a file with {@link #saveIndex} and loaded by
+ * later compiler runs with {@link #loadIndex} to skip reflecting over
+ * framework classes at startup.
+ *
  * @author ferhat
  */
 public class ModelReflector {
 
+  private static final String INDEX_HEADER = "# uxml reflection index v1";
+  private static final String FINGERPRINT_RECORD = "fingerprint";
+  private static final String TYPE_RECORD = "type";
+  private static final String MEMBER_RECORD = "member";
+  private static final String SEPARATOR = "\t";
+
+  /** Maps primitive type names to classes for loading the index. */
+  private static final Map<String, Class<?>> primitiveTypes = Maps.newHashMap();
+  static {
+    Class<?>[] primitives = {boolean.class, byte.class, char.class, short.class, int.class,
+        long.class, float.class, double.class, void.class};
+    for (Class<?> primitive : primitives) {
+      primitiveTypes.put(primitive.getName(), primitive);
+    }
+  }
+
   /** Maps a class to a cache item */
   private Map<TypeToken, ReflectionCache> typeMap = Maps.newHashMap();
 
@@ -65,6 +101,161 @@ public class ModelReflector {
     registeredElements.add(type);
   }
 
+  /**
+   * Populates reflection caches of all registered elements. Once cached,
+   * the reflector can be shared by concurrent compiles.
+   */
+  public void cacheAll() {
+    for (ReflectionCache cacheItem : typeMap.values()) {
+      cacheItem.cacheAll();
+    }
+  }
+
+  /**
+   * Writes member index of all registered elements to file.
+   */
+  public void saveIndex(File file) throws IOException {
+    File parent = file.getParentFile();
+    if (parent != null && !parent.exists()) {
+      parent.mkdirs();
+    }
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+    try {
+      writer.write(INDEX_HEADER + '\n');
+      writer.write(FINGERPRINT_RECORD + SEPARATOR + computeFingerprint() + '\n');
+      for (TypeToken type : registeredElements) {
+        typeMap.get(type).writeIndex(writer);
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Loads member index written by {@link #saveIndex}.
+   *
+   * @return false if file is missing, corrupt or was written for different
+   *     framework classes. The reflector is left unchanged in that case.
+   */
+  public boolean loadIndex(File file) {
+    if (!file.isFile()) {
+      return false;
+    }
+    Map<String, ReflectionCache> classMap = Maps.newHashMap();
+    for (TypeToken type : registeredElements) {
+      ReflectionCache cacheItem = typeMap.get(type);
+      classMap.put(cacheItem.source.getName(), cacheItem);
+    }
+    Map<ReflectionCache, ReflectionCache> loaded = Maps.newHashMap();
+    BufferedReader reader = null;
+    try {
+      reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+      if (!INDEX_HEADER.equals(reader.readLine())) {
+        return false;
+      }
+      String line = reader.readLine();
+      if (line == null || !line.equals(FINGERPRINT_RECORD + SEPARATOR + computeFingerprint())) {
+        return false;
+      }
+      ReflectionCache target = null;
+      ReflectionCache index = null;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split(SEPARATOR, -1);
+        if (fields[0].equals(TYPE_RECORD) && fields.length == 5) {
+          target = classMap.get(fields[1]);
+          if (target == null) {
+            return false;
+          }
+          index = new ReflectionCache(target.source);
+          index.readIndex(fields);
+          loaded.put(target, index);
+        } else if (fields[0].equals(MEMBER_RECORD) && fields.length == 7 && index != null) {
+          index.readMember(fields);
+        } else {
+          return false;
+        }
+      }
+    } catch (IOException e) {
+      return false;
+    } catch (IllegalArgumentException e) {
+      return false;
+    } finally {
+      Closeables.closeQuietly(reader);
+    }
+    if (loaded.size() != classMap.size()) {
+      return false;
+    }
+    for (Map.Entry<ReflectionCache, ReflectionCache> entry : loaded.entrySet()) {
+      entry.getKey().copyIndex(entry.getValue());
+    }
+    return true;
+  }
+
+  /**
+   * Returns fingerprint of registered class names and the class files of
+   * their hierarchies, used to discard indexes of a different framework build.
+   * Only file sizes and modification times are read.
+   */
+  private String computeFingerprint() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    Set<Class<?>> visited = Sets.newHashSet();
+    Set<String> stampedLocations = Sets.newHashSet();
+    for (TypeToken type : registeredElements) {
+      Class<?> cls = typeMap.get(type).source;
+      sb.append(cls.getName()).append('\n');
+      for (; cls != null && cls != Object.class && visited.add(cls); cls = cls.getSuperclass()) {
+        CodeSource codeSource = cls.getProtectionDomain().getCodeSource();
+        URL location = codeSource == null ? null : codeSource.getLocation();
+        File file = null;
+        if (location != null && location.getProtocol().equals("file")) {
+          file = fileFromUrl(location);
+        }
+        if (file != null) {
+          if (file.isDirectory()) {
+            file = new File(file, cls.getName().replace('.', '/') + ".class");
+          } else if (!stampedLocations.add(file.getPath())) {
+            continue; // Archive already stamped.
+          }
+          sb.append(file.getPath()).append(':').append(file.length()).append(':')
+              .append(file.lastModified()).append('\n');
+        } else {
+          URL url = cls.getResource(cls.getSimpleName() + ".class");
+          if (url != null) {
+            URLConnection connection = url.openConnection();
+            sb.append(url).append(':').append(connection.getContentLength()).append(':')
+                .append(connection.getLastModified()).append('\n');
+          }
+        }
+      }
+    }
+    // 64 bit FNV-1a hash of stamps.
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < sb.length(); ++i) {
+      hash ^= sb.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return Long.toHexString(hash);
+  }
+
+  private static File fileFromUrl(URL url) {
+    try {
+      return new File(url.toURI());
+    } catch (URISyntaxException e) {
+      return null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns class for a type name written to index.
+   */
+  private static Class<?> typeFromName(String name, ClassLoader loader)
+      throws ClassNotFoundException {
+    Class<?> primitive = primitiveTypes.get(name);
+    return primitive != null ? primitive : Class.forName(name, false, loader);
+  }
+
   /**
    * Returns list of registered elements.
    */
@@ -179,6 +370,26 @@ public class ModelReflector {
     return node != null;
   }
 
+  /**
+   * Accessors of a class member indexed by lower case member name.
+   */
+  static class MemberInfo {
+    /** Name of public getter or null if member is write only. */
+    private String getterName;
+    /** Name of public setter or null if member is read only. */
+    private String setterName;
+    /** Name of getter return type or null if member is write only. */
+    private String dataTypeName;
+    /** Return type of getter, resolved on first use when loaded from index. */
+    private Class<?> dataType;
+    private boolean collection;
+    private boolean collectionPreAllocated;
+
+    // Collection annotations collected while indexing.
+    private CollectionNode getterCollection;
+    private CollectionNode setterCollection;
+  }
+
   /**
    * Caches PropertyDefinitions for a class on demand.
    */
@@ -186,12 +397,13 @@ public class ModelReflector {
     private Class<?> source;
     private TypeToken typeToken;
     private List<PropertyDefinition> propDefList;
-    private Map<String, PropertyDefinition> propNameMap = Maps.newHashMap();
     private List<EventDefinition> eventDefList;
-    private Map<String, EventDefinition> eventNameMap = Maps.newHashMap();
+    // Set to source if it derives from UxmlElement.
+    private Class<? extends UxmlElement> elementClass;
     private boolean propertiesCached = false;
     private boolean eventsCached = false;
-    private boolean contentNodeTypeCached = false;
+    private Map<String, MemberInfo> memberMap = Maps.newHashMap();
+    private boolean membersCached = false;
     private ContentNodeType contentNodeType;
     private String contentNodeName;
     private boolean preAllocated = true;
@@ -203,6 +415,20 @@ public class ModelReflector {
       this.source = source;
     }
 
+    /** Populates all lazily cached members */
+    public void cacheAll() {
+      getTypeToken();
+      cachePropDefList();
+      cacheEventDefList();
+      cacheMembers();
+      // Resolve member types now, getDataType would write them lazily.
+      for (MemberInfo member : memberMap.values()) {
+        if ((member.getterName != null) && (member.dataType == null)) {
+          member.dataType = resolveDataType(member);
+        }
+      }
+    }
+
     /** Returns cached typetoken for class */
     public TypeToken getTypeToken() {
       if (typeToken == null) {
@@ -215,14 +441,14 @@ public class ModelReflector {
     public PropertyDefinition getPropDef(String name) {
       cachePropDefList();
       return (propDefList == null)
-          ? null : propNameMap.get(name.toLowerCase());
+          ? null : PropertySystem.getPropertyDefinition(elementClass, name);
     }
 
     /** Returns property definition for a class */
     public EventDefinition getEventDef(String name) {
       cacheEventDefList();
       return (eventDefList == null)
-          ? null : eventNameMap.get(name.toLowerCase());
+          ? null : EventManager.getEventDefinition(elementClass, name);
     }
 
     /**
@@ -233,69 +459,30 @@ public class ModelReflector {
       if (propDef != null) {
         return propDef.getDataType();
       }
-      String fieldName = name.substring(0, 1).toUpperCase() + name.substring(1);
-      try {
-        Method method = source.getMethod("get" + fieldName, new Class<?>[] {});
-        return method.getReturnType();
-      } catch (NoSuchMethodException e) {
-        // Try lower case version
-        try {
-          Method method = source.getMethod("get" + name, new Class<?>[] {});
-          return method.getReturnType();
-        } catch (NoSuchMethodException e2) {
-          return String.class; // Default to string type.s
-        }
+      MemberInfo member = getMember(name);
+      if (member == null || member.getterName == null) {
+        return String.class; // Default to string type.
+      }
+      if (member.dataType == null) {
+        member.dataType = resolveDataType(member);
       }
+      return member.dataType;
     }
 
     /**
      * Returns true if property is collection.
      **/
     public boolean isCollection(String name) {
-      String fieldName = name.substring(0, 1).toUpperCase() + name.substring(1);
-      try {
-        Method method = source.getMethod("get" + fieldName, new Class<?>[] {});
-        CollectionNode node = method.getAnnotation(CollectionNode.class);
-        if (node != null) {
-          return true;
-        }
-      } catch (NoSuchMethodException e) {
-        // Get method not found. Try setter below.
-      }
-      String setterName = "set" + fieldName;
-      Method[] methods = source.getMethods();
-      for (int i = 0; i < methods.length; i++) {
-        if (methods[i].getName().equals(setterName)) {
-          CollectionNode node = methods[i].getAnnotation(CollectionNode.class);
-          return node != null;
-        }
-      }
-      return false;
+      MemberInfo member = getMember(name);
+      return member != null && member.collection;
     }
 
     /**
      * Returns true if property is preallocated collection.
      **/
     public boolean isCollectionPreAllocated(String name) {
-      String fieldName = name.substring(0, 1).toUpperCase() + name.substring(1);
-      try {
-        Method method = source.getMethod("get" + fieldName, new Class<?>[] {});
-        CollectionNode node = method.getAnnotation(CollectionNode.class);
-        if (node != null) {
-          return node.isPreAllocated();
-        }
-      } catch (NoSuchMethodException e) {
-        // Get method not found. Try setter below.
-      }
-      String setterName = "set" + fieldName;
-      Method[] methods = source.getMethods();
-      for (int i = 0; i < methods.length; i++) {
-        if (methods[i].getName().equals(setterName)) {
-          CollectionNode node = methods[i].getAnnotation(CollectionNode.class);
-          return node == null ? false : node.isPreAllocated();
-        }
-      }
-      return false;
+      MemberInfo member = getMember(name);
+      return member != null && member.collectionPreAllocated;
     }
 
     /**
@@ -309,67 +496,173 @@ public class ModelReflector {
       if (propDef != null) {
         return true;
       }
-      String fieldName = name.substring(0, 1).toUpperCase() + name.substring(1);
-      try {
-        source.getMethod("get" + fieldName, new Class<?>[] {});
-        return true;
-      } catch (NoSuchMethodException e) {
-        // Try lower case version
-        try {
-          source.getMethod("get" + name, new Class<?>[] {});
-          return true;
-        } catch (NoSuchMethodException e2) {
-          return false;
-        }
-      }
+      MemberInfo member = getMember(name);
+      return member != null && member.getterName != null;
     }
 
     /**
      * Returns type of member that is marked with ContentNode attribute.
      */
     public ContentNodeType getContentNodeType() {
-      cacheContentNodeType();
+      cacheMembers();
       return contentNodeType;
     }
 
-    private void cacheContentNodeType() {
-      if (contentNodeTypeCached == false) {
-        contentNodeType = ContentNodeType.None;
-        contentNodeTypeCached = true;
-        Class<?> cls = source;
-        while (cls != Object.class) {
-          Method[] methods = source.getMethods();
-          for (Method m : methods) {
-            ContentNode node = m.getAnnotation(ContentNode.class);
-            if (node != null) {
-              if (m.getName().startsWith("set")) {
-                contentNodeType = ContentNodeType.Field;
-                contentNodeName = m.getName().substring(3);
-              } else {
-                contentNodeType = ContentNodeType.CollectionMethod;
-                contentNodeName = m.getName();
-              }
-              return;
-            }
-            CollectionNode collNode = m.getAnnotation(CollectionNode.class);
-            if (collNode != null) {
-              if (m.getName().startsWith("get")) {
-                contentNodeType = ContentNodeType.CollectionMethod;
-                contentNodeName = m.getName().substring(3);
-                preAllocated = collNode.isPreAllocated();
-              }
+    /**
+     * Resolves data type of a member loaded from index. Falls back to
+     * reflection if type can't be loaded by name.
+     */
+    private Class<?> resolveDataType(MemberInfo member) {
+      try {
+        return typeFromName(member.dataTypeName, source.getClassLoader());
+      } catch (ClassNotFoundException e) {
+        try {
+          return source.getMethod(member.getterName, new Class<?>[] {}).getReturnType();
+        } catch (NoSuchMethodException e2) {
+          return String.class;
+        }
+      }
+    }
+
+    /** Returns indexed accessors of a member or null if class has none. */
+    private MemberInfo getMember(String name) {
+      cacheMembers();
+      return memberMap.get(name.toLowerCase());
+    }
+
+    /**
+     * Indexes getters, setters and content node of class in a single pass
+     * over its public methods.
+     */
+    private void cacheMembers() {
+      if (membersCached) {
+        return;
+      }
+      membersCached = true;
+      contentNodeType = ContentNodeType.None;
+      boolean contentNodeFound = false;
+      for (Method m : source.getMethods()) {
+        if (m.isBridge()) {
+          continue;
+        }
+        String methodName = m.getName();
+        CollectionNode collNode = m.getAnnotation(CollectionNode.class);
+        if (!contentNodeFound) {
+          ContentNode node = m.getAnnotation(ContentNode.class);
+          if (node != null) {
+            contentNodeFound = true;
+            if (methodName.startsWith("set")) {
+              contentNodeType = ContentNodeType.Field;
+              contentNodeName = methodName.substring(3);
+            } else {
+              contentNodeType = ContentNodeType.CollectionMethod;
+              contentNodeName = methodName;
             }
+          } else if (collNode != null && methodName.startsWith("get")) {
+            contentNodeType = ContentNodeType.CollectionMethod;
+            contentNodeName = methodName.substring(3);
+            preAllocated = collNode.isPreAllocated();
           }
-          cls = cls.getSuperclass();
         }
+        if (methodName.length() <= 3) {
+          continue;
+        }
+        if (methodName.startsWith("get") && m.getParameterTypes().length == 0) {
+          MemberInfo member = getOrCreateMember(methodName.substring(3));
+          if (member.getterName == null
+              || member.dataType.isAssignableFrom(m.getReturnType())) {
+            member.getterName = methodName;
+            member.dataType = m.getReturnType();
+            member.dataTypeName = member.dataType.getName();
+            member.getterCollection = collNode;
+          }
+        } else if (methodName.startsWith("set")) {
+          MemberInfo member = getOrCreateMember(methodName.substring(3));
+          if (member.setterName == null) {
+            member.setterName = methodName;
+            member.setterCollection = collNode;
+          }
+        }
+      }
+      for (MemberInfo member : memberMap.values()) {
+        // A collection annotation on the getter takes precedence over setter.
+        CollectionNode collNode = member.getterCollection != null
+            ? member.getterCollection : member.setterCollection;
+        member.collection = collNode != null;
+        member.collectionPreAllocated = collNode != null && collNode.isPreAllocated();
+        member.getterCollection = null;
+        member.setterCollection = null;
+      }
+    }
+
+    /**
+     * Writes type and member records of class index.
+     */
+    void writeIndex(Writer writer) throws IOException {
+      cacheMembers();
+      writer.write(TYPE_RECORD + SEPARATOR + source.getName() + SEPARATOR + contentNodeType
+          + SEPARATOR + (contentNodeName == null ? "" : contentNodeName) + SEPARATOR
+          + preAllocated + '\n');
+      for (Map.Entry<String, MemberInfo> entry : memberMap.entrySet()) {
+        MemberInfo member = entry.getValue();
+        writer.write(MEMBER_RECORD + SEPARATOR + entry.getKey()
+            + SEPARATOR + (member.getterName == null ? "" : member.getterName)
+            + SEPARATOR + (member.setterName == null ? "" : member.setterName)
+            + SEPARATOR + (member.dataTypeName == null ? "" : member.dataTypeName)
+            + SEPARATOR + member.collection + SEPARATOR + member.collectionPreAllocated
+            + '\n');
       }
     }
 
+    /**
+     * Reads content node fields from a type record.
+     */
+    void readIndex(String[] fields) {
+      contentNodeType = ContentNodeType.valueOf(fields[2]);
+      contentNodeName = fields[3].length() == 0 ? null : fields[3];
+      preAllocated = Boolean.parseBoolean(fields[4]);
+      membersCached = true;
+    }
+
+    /**
+     * Reads a member record.
+     */
+    void readMember(String[] fields) {
+      MemberInfo member = new MemberInfo();
+      member.getterName = fields[2].length() == 0 ? null : fields[2];
+      member.setterName = fields[3].length() == 0 ? null : fields[3];
+      member.dataTypeName = fields[4].length() == 0 ? null : fields[4];
+      member.collection = Boolean.parseBoolean(fields[5]);
+      member.collectionPreAllocated = Boolean.parseBoolean(fields[6]);
+      memberMap.put(fields[1], member);
+    }
+
+    /**
+     * Replaces member index with one loaded from file.
+     */
+    void copyIndex(ReflectionCache index) {
+      memberMap = index.memberMap;
+      contentNodeType = index.contentNodeType;
+      contentNodeName = index.contentNodeName;
+      preAllocated = index.preAllocated;
+      membersCached = true;
+    }
+
+    private MemberInfo getOrCreateMember(String name) {
+      String key = name.toLowerCase();
+      MemberInfo member = memberMap.get(key);
+      if (member == null) {
+        member = new MemberInfo();
+        memberMap.put(key, member);
+      }
+      return member;
+    }
+
     /**
      * Returns name of member that is marked with ContentNode attribute.
      */
     public String getContentNodeName() {
-      cacheContentNodeType();
+      cacheMembers();
       return contentNodeName;
     }
 
@@ -377,6 +670,7 @@ public class ModelReflector {
      * Returns true of collection node is preallocated.
      */
     public boolean isPreAllocated() {
+      cacheMembers();
       return preAllocated;
     }
 
@@ -390,11 +684,8 @@ public class ModelReflector {
           // If class doesn't derive from Element, don't do anything (empty propList).
         }
         if (sourceElement != null) {
+          elementClass = sourceElement;
           propDefList = PropertySystem.getPropertyDefinitions(sourceElement);
-          for (int i = 0; i < propDefList.size(); ++i) {
-            PropertyDefinition propDef = propDefList.get(i);
-            propNameMap.put(propDef.getName().toLowerCase(), propDef);
-          }
         }
       }
     }
@@ -409,11 +700,8 @@ public class ModelReflector {
           // If class doesn't derive from Element, don't do anything (empty propList).
         }
         if (sourceElement != null) {
+          elementClass = sourceElement;
           eventDefList = EventManager.getEventDefinitions(sourceElement);
-          for (int i = 0; i < eventDefList.size(); ++i) {
-            EventDefinition eventDef = eventDefList.get(i);
-            eventNameMap.put(eventDef.getName().toLowerCase(), eventDef);
-          }
         }
       }
     }
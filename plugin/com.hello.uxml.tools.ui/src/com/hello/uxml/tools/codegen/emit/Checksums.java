@@ -0,0 +1,40 @@
+package com.hello.uxml.tools.codegen.emit;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Provides checksum helpers for generated code and build caches.
+ *
+ * @author ferhat
+ */
+public final class Checksums {
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private Checksums() {
+  }
+
+  /**
+   * Creates md5 message digest.
+   */
+  public static MessageDigest createMd5Digest() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 not supported", e);
+    }
+  }
+
+  /**
+   * Returns lower case hex representation of bytes.
+   */
+  public static String toHex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+      chars[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+    }
+    return new String(chars);
+  }
+}
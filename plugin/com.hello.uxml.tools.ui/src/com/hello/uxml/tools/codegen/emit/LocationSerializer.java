@@ -16,28 +16,29 @@ import java.util.Map;
  */
 public class LocationSerializer implements CodeSerializer {
 
-  static Map<String, Integer> valMap = null;
+  /** Filled once in static initializer, read only by concurrent compiles. */
+  static final Map<String, Integer> valMap = Maps.newHashMap();
+
+  static {
+    valMap.put("default", 0);
+    valMap.put("top", 1);
+    valMap.put("bottom", 2);
+    valMap.put("topedge", 4);
+    valMap.put("bottomedge", 8);
+    valMap.put("vcenter", 0x10);
+    valMap.put("bottomortop", 0x10002);
+    valMap.put("toporbottom", 0x10001);
+    valMap.put("left", 0x0100);
+    valMap.put("right", 0x0200);
+    valMap.put("leftedge", 0x0400);
+    valMap.put("rightedge", 0x0800);
+    valMap.put("center", 0x1000);
+    valMap.put("custom", 0x40000);
+    valMap.put("toplevel", 0x80000);
+  }
 
   public LocationSerializer() {
     super();
-    if (valMap == null) {
-      valMap = Maps.newHashMap();
-      valMap.put("default", 0);
-      valMap.put("top", 1);
-      valMap.put("bottom", 2);
-      valMap.put("topedge", 4);
-      valMap.put("bottomedge", 8);
-      valMap.put("vcenter", 0x10);
-      valMap.put("bottomortop", 0x10002);
-      valMap.put("toporbottom", 0x10001);
-      valMap.put("left", 0x0100);
-      valMap.put("right", 0x0200);
-      valMap.put("leftedge", 0x0400);
-      valMap.put("rightedge", 0x0800);
-      valMap.put("center", 0x1000);
-      valMap.put("custom", 0x40000);
-      valMap.put("toplevel", 0x80000);
-    }
   }
 
   /** Returns true if value can be serialized */
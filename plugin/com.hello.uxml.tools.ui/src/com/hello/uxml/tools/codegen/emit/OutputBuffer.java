@@ -0,0 +1,108 @@
+package com.hello.uxml.tools.codegen.emit;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Growable in-memory byte channel that holds generated output.
+ *
+ * <p>Buffers are meant to be reused across compiles (see {@link #reset}) so
+ * the backing array is allocated once per compiler thread.
+ * This class is NOT safe for multithreaded access.
+ *
+ * @author ferhat
+ */
+public class OutputBuffer implements WritableByteChannel {
+
+  private static final int INITIAL_CAPACITY = 32 * 1024;
+  private static final int COMPARE_BLOCK_SIZE = 8192;
+
+  private byte[] data;
+  private int size;
+
+  /**
+   * Creates empty buffer.
+   */
+  public OutputBuffer() {
+    data = new byte[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Discards contents. Keeps backing array for reuse.
+   */
+  public void reset() {
+    size = 0;
+  }
+
+  /**
+   * Returns number of bytes in buffer.
+   */
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int write(ByteBuffer src) {
+    int count = src.remaining();
+    if (size + count > data.length) {
+      byte[] newData = new byte[Math.max(data.length * 2, size + count)];
+      System.arraycopy(data, 0, newData, 0, size);
+      data = newData;
+    }
+    src.get(data, size, count);
+    size += count;
+    return count;
+  }
+
+  /**
+   * Writes contents of buffer to channel.
+   */
+  public void writeTo(WritableByteChannel channel) throws IOException {
+    ByteBuffer src = ByteBuffer.wrap(data, 0, size);
+    while (src.hasRemaining()) {
+      channel.write(src);
+    }
+  }
+
+  /**
+   * Returns true if file exists and holds exactly the contents of buffer.
+   */
+  public boolean contentEquals(File file) throws IOException {
+    if (!file.isFile() || file.length() != size) {
+      return false;
+    }
+    InputStream stream = new FileInputStream(file);
+    try {
+      byte[] block = new byte[COMPARE_BLOCK_SIZE];
+      int offset = 0;
+      int count;
+      while ((count = stream.read(block)) != -1) {
+        if (offset + count > size) {
+          return false;
+        }
+        for (int i = 0; i < count; ++i) {
+          if (block[i] != data[offset + i]) {
+            return false;
+          }
+        }
+        offset += count;
+      }
+      return offset == size;
+    } finally {
+      stream.close();
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return true;
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -4,23 +4,54 @@ import com.google.common.base.Preconditions;
 import com.hello.uxml.tools.codegen.emit.expressions.Expression;
 import com.hello.uxml.tools.codegen.emit.expressions.Statement;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.security.MessageDigest;
+
 /**
  * Writes properly indented source code.
  *
  * This class is used by Package/Class/CodeBuilder to generate output.
  * This class is NOT safe for multithreaded access.
  *
+ * <p>A writer created with a channel streams its output: text is encoded in
+ * fixed size chunks as it is written and the md5 checksum of the encoded
+ * bytes is computed on the way, so the complete source is never held as a
+ * String.
+ *
  * @author ferhat
  */
 public class SourceWriter {
 
   private static final int TAB_SPACE_COUNT = 2;
+
+  /** Number of characters buffered before encoding to channel. */
+  private static final int CHUNK_SIZE = 8192;
+
   private StringBuilder sb;
   private int tabLevel = 0;
 
   // Indicates if writer is at start of line and should indent before output
   private boolean isStartOfLine = true;
 
+  /** Target of streamed output or null if writer buffers in memory. */
+  private WritableByteChannel channel;
+  private CharsetEncoder encoder;
+  private ByteBuffer byteBuffer;
+  private MessageDigest digest;
+  private long byteCount;
+  private String md5;
+
+  /** First write failure, reported by close. */
+  private IOException writeError;
+
   /**
    * Creates an empty source writer.
    */
@@ -28,6 +59,20 @@ public class SourceWriter {
     sb = new StringBuilder();
   }
 
+  /**
+   * Creates a source writer that streams output encoded with charset to
+   * channel. {@link #close} must be called to write remaining output.
+   */
+  public SourceWriter(WritableByteChannel channel, Charset charset) {
+    sb = new StringBuilder(CHUNK_SIZE + CHUNK_SIZE / 2);
+    this.channel = channel;
+    encoder = charset.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    byteBuffer = ByteBuffer.allocate((int) (CHUNK_SIZE * encoder.maxBytesPerChar()) + 16);
+    digest = Checksums.createMd5Digest();
+  }
+
   public void indent() {
     tabLevel++;
   }
@@ -46,6 +91,7 @@ public class SourceWriter {
     print(str);
     sb.append('\n');
     isStartOfLine = true;
+    checkChunk();
   }
 
   /**
@@ -59,6 +105,7 @@ public class SourceWriter {
     }
     sb.append(str);
     isStartOfLine = false;
+    checkChunk();
   }
 
   /**
@@ -74,6 +121,7 @@ public class SourceWriter {
     } else {
       sb.append('\n');
     }
+    checkChunk();
   }
 
   /**
@@ -87,9 +135,94 @@ public class SourceWriter {
   }
 
   @Override public String toString() {
+    Preconditions.checkState(channel == null, "Output was streamed to channel");
     return sb.toString();
   }
 
+  /**
+   * Encodes and writes remaining output of a streaming writer.
+   *
+   * @throws IOException if writing to the channel failed.
+   */
+  public void close() throws IOException {
+    if (channel == null || md5 != null) {
+      return;
+    }
+    encodeChunk(true);
+    while (writeError == null && encoder.flush(byteBuffer).isOverflow()) {
+      writeBytes();
+    }
+    writeBytes();
+    md5 = Checksums.toHex(digest.digest());
+    if (writeError != null) {
+      throw writeError;
+    }
+  }
+
+  /**
+   * Returns md5 checksum of streamed output. Available after {@link #close}.
+   */
+  public String getMd5() {
+    return md5;
+  }
+
+  /**
+   * Returns number of bytes written to channel.
+   */
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * Streams buffered text once a chunk is complete.
+   */
+  private void checkChunk() {
+    if (channel != null && sb.length() >= CHUNK_SIZE) {
+      encodeChunk(false);
+    }
+  }
+
+  /**
+   * Encodes buffered characters to channel. Characters that can't be
+   * encoded yet (first half of a surrogate pair) are kept for the next chunk.
+   */
+  private void encodeChunk(boolean endOfInput) {
+    CharBuffer chars = CharBuffer.wrap(sb);
+    while (writeError == null) {
+      CoderResult result = encoder.encode(chars, byteBuffer, endOfInput);
+      if (result.isOverflow()) {
+        writeBytes();
+      } else if (result.isError()) {
+        try {
+          result.throwException();
+        } catch (CharacterCodingException e) {
+          writeError = e;
+        }
+      } else {
+        break;
+      }
+    }
+    sb.delete(0, chars.position());
+  }
+
+  /**
+   * Writes encoded bytes to channel and updates checksum.
+   */
+  private void writeBytes() {
+    byteBuffer.flip();
+    digest.update(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(),
+        byteBuffer.remaining());
+    byteCount += byteBuffer.remaining();
+    try {
+      while (writeError == null && byteBuffer.hasRemaining()) {
+        channel.write(byteBuffer);
+      }
+    } catch (IOException e) {
+      writeError = e;
+    }
+    byteBuffer.clear();
+  }
+
   /**
    * Compiles an expression to a string.
    *
@@ -51,7 +51,7 @@ import com.hello.uxml.tools.codegen.emit.java.JStaticMethodCall;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Implements PackageBuilder for Dart.
@@ -73,8 +73,12 @@ public class DartPackageBuilder implements PackageBuilder {
   /** List of imports */
   private ArrayList<TypeToken> imports = Lists.newArrayList();
 
-  /** Registered serializers. Maps element type name to CodeSerializer */
-  private static final Map<String, CodeSerializer>codeSerializers = Maps.newHashMap();
+  /**
+   * Registered serializers. Maps element type name to CodeSerializer. Enum
+   * serializers are added during parallel compiles.
+   */
+  private static final ConcurrentMap<String, CodeSerializer> codeSerializers =
+      Maps.newConcurrentMap();
 
   /** Common TypeTokens */
 
@@ -464,7 +468,11 @@ public class DartPackageBuilder implements PackageBuilder {
       }
       if ((elementClass != null) && elementClass.isEnum()) {
         serializer = new DartEnumSerializer(elementClass);
-        codeSerializers.put(elementType.getName(), serializer);
+        CodeSerializer existing = codeSerializers.putIfAbsent(elementType.getName(),
+            serializer);
+        if (existing != null) {
+          serializer = existing;
+        }
       }
     }
     return serializer;
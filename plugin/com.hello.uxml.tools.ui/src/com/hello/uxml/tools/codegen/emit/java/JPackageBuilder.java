@@ -48,7 +48,7 @@ import com.hello.uxml.tools.codegen.emit.expressions.VariableDefinitionStatement
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Implements PackageBuilder for Java.
@@ -69,8 +69,12 @@ public class JPackageBuilder implements PackageBuilder {
   /** List of imports */
   private ArrayList<TypeToken> imports = Lists.newArrayList();
 
-  /** Registered serializers. Maps element type name to CodeSerializer */
-  private static final Map<String, CodeSerializer>codeSerializers = Maps.newHashMap();
+  /**
+   * Registered serializers. Maps element type name to CodeSerializer. Enum
+   * serializers are added during parallel compiles.
+   */
+  private static final ConcurrentMap<String, CodeSerializer> codeSerializers =
+      Maps.newConcurrentMap();
 
   /** Common TypeTokens */
   private TypeToken delegateTypeToken = TypeToken.fromFullName(EventHandler.class.getName());
@@ -455,7 +459,11 @@ public class JPackageBuilder implements PackageBuilder {
       }
       if ((elementClass != null) && elementClass.isEnum()) {
         serializer = new JEnumSerializer(elementClass);
-        codeSerializers.put(elementType.getName(), serializer);
+        CodeSerializer existing = codeSerializers.putIfAbsent(elementType.getName(),
+            serializer);
+        if (existing != null) {
+          serializer = existing;
+        }
       }
     }
     return serializer;
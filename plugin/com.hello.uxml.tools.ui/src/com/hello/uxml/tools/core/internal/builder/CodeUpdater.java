@@ -4,10 +4,14 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.hello.uxml.tools.framework.Application;
+import com.hello.uxml.tools.framework.PropertyAccessor;
+import com.hello.uxml.tools.framework.ReflectivePropertyAccessor;
 import com.hello.uxml.tools.framework.UxmlElement;
 import com.hello.uxml.tools.framework.graphics.Brush;
+import com.hello.uxml.tools.codegen.BuildCache;
 import com.hello.uxml.tools.codegen.CompilerError;
 import com.hello.uxml.tools.codegen.Configuration;
+import com.hello.uxml.tools.codegen.ImportCache;
 import com.hello.uxml.tools.codegen.Severity;
 import com.hello.uxml.tools.codegen.UXMLCompiler;
 import com.hello.uxml.tools.codegen.emit.BuilderFactoryRegistry;
@@ -16,6 +20,7 @@ import com.hello.uxml.tools.codegen.emit.dart.DartBuilderFactory;
 import com.hello.uxml.tools.codegen.emit.java.JBuilderFactory;
 import com.hello.uxml.tools.core.internal.dartf.DartToXCompiler;
 import com.hello.uxml.tools.core.internal.dartf.DartToXCompiler.CompilerMessage;
+import com.hello.uxml.tools.ui.Activator;
 import com.hello.uxml.tools.ui.CodeGenLanguage;
 import com.hello.uxml.tools.ui.internal.properties.ProjectItemMetadata;
 import com.hello.uxml.tools.ui.internal.properties.UXMLProjectMetadata;
@@ -27,12 +32,10 @@ import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IPathVariableManager;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.IResourceChangeEvent;
-import org.eclipse.core.resources.IResourceChangeListener;
-import org.eclipse.core.resources.IResourceDelta;
-import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -56,13 +59,13 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Provides code update service using a resource change listener.
+ * Provides code update service to the project builder.
  *
  * <p> This is a singleton created by Activator.
  *
  * @author ferhat
  */
-public class CodeUpdater implements IResourceChangeListener {
+public class CodeUpdater {
 
   private static CodeUpdater defaultUpdater;
   private static final Logger logger = Logger.getLogger(CodeUpdater.class.getName());
@@ -75,6 +78,9 @@ public class CodeUpdater implements IResourceChangeListener {
 
   private static final String IMPORT_PACKAGE_PREFIX = "package:";
 
+  /** Name of build cache file in project working location. */
+  private static final String BUILD_CACHE_FILE_NAME = "uxml_build.cache";
+
   /** Hold on to IProject of last resource to reduce metadata lookups */
   private IProject cachedProject;
   /** Caches metadata for {@code cachedProject} */
@@ -83,6 +89,9 @@ public class CodeUpdater implements IResourceChangeListener {
   /** DartToX compiler. */
   private DartToXCompiler dartToX = null;
 
+  /** Build caches of projects shared by all updaters, loaded on first compile. */
+  private static final Map<IProject, BuildCache> buildCaches = Maps.newHashMap();
+
   /**
    * Constructor.
    */
@@ -121,6 +130,11 @@ public class CodeUpdater implements IResourceChangeListener {
     }
     }
 
+    @Override
+    protected PropertyAccessor createPropertyAccessor(Class<?> ownerClass, String keyName) {
+      return new ReflectivePropertyAccessor(ownerClass, keyName);
+    }
+
     /**
      * Verifies that a class has been loaded. Classes have to be loaded for
      * PropertyDefinitions to be registered.
@@ -155,63 +169,6 @@ public class CodeUpdater implements IResourceChangeListener {
     return defaultUpdater;
   }
 
-  /**
-   * Handles resources changes in the project and creates updateinfo instances
-   * to kick off a uxmlc compile task.
-   */
-  public void resourceChanged(IResourceChangeEvent event) {
-    if (event.getType() != IResourceChangeEvent.POST_CHANGE) {
-      return;
-    }
-    IResourceDelta rootDelta = event.getDelta();
-    final List<UpdateInfo> updateList = new ArrayList<UpdateInfo>();
-
-    IResourceDeltaVisitor visitor = new IResourceDeltaVisitor() {
-      public boolean visit(IResourceDelta delta) {
-        // only interested in changed or added resources
-        // to filter for content changes use IResourceDelta.Content
-
-        IResource resource = delta.getResource();
-        if (resource.isDerived()) {
-          return true;
-        }
-
-        int change = delta.getKind();
-
-        // Ignore if not changed and not added
-        if (((change & IResourceDelta.CHANGED) == 0)
-            && ((change & IResourceDelta.ADDED) == 0)
-            && ((change & IResourceDelta.ADDED_PHANTOM) == 0)) {
-          return true;
-        }
-        // Ignore if content hasn't changed but markers did
-        if (((delta.getFlags() & IResourceDelta.CONTENT) == 0)
-            && ((delta.getFlags() & IResourceDelta.MARKERS) != 0)) {
-            return true;
-        }
-
-        //only interested in files with "hts, uxml, dart" extension
-        if (resource.getType() == IResource.FILE && (
-            "hts".equalsIgnoreCase(resource.getFileExtension()) ||
-            "uxml".equalsIgnoreCase(resource.getFileExtension()) ||
-            "dart".equalsIgnoreCase(resource.getFileExtension()))) {
-          if (!createUpdateInfo(resource, updateList)) {
-            return false;
-          }
-        }
-        return true;
-      }
-    };
-
-    // Visit every node and construct updateList
-    try {
-      rootDelta.accept(visitor);
-    } catch (CoreException e) {
-      //TODO(ferhat) open error dialog with syncExec or print to plugin log file
-    }
-    compileUpdates(updateList);
-  }
-
   /**
    * Handles a resource change.
    * @param resource changed resource.
@@ -327,6 +284,9 @@ public class CodeUpdater implements IResourceChangeListener {
     List<File> allOutputs = new ArrayList<File>();
     List<IResource> allResources = new ArrayList<IResource>();
     List<IResource> markerResources = new ArrayList<IResource>();
+    Set<BuildCache> usedCaches = Sets.newHashSet();
+    // Markup files of a build commonly import the same resource files.
+    ImportCache importCache = new ImportCache();
 
     for (UpdateInfo updateInfo : updateList) {
       try {
@@ -360,6 +320,14 @@ public class CodeUpdater implements IResourceChangeListener {
             updateInfo.getLanguage(), true, updateInfo.getLocalizationWarnEnabled());
 
         UXMLCompiler compiler = new UXMLCompiler(config, registry);
+        compiler.setImportCache(importCache);
+        BuildCache buildCache = getBuildCache(updateInfo.getResource().getProject());
+        if (buildCache != null) {
+          if (usedCaches.add(buildCache)) {
+            buildCache.resetStamps();
+          }
+          compiler.setBuildCache(buildCache);
+        }
         logger.log(Level.INFO, "Compiling " + updateInfo.getResource().getName());
 
         if ((compiler.compile() == false) || (compiler.getErrors().size() != 0)) {
@@ -371,8 +339,9 @@ public class CodeUpdater implements IResourceChangeListener {
           }
         } else {
           markerResources.add(updateInfo.getResource());
-          // Refresh resources to make new target files visible
-          List<File> outputs = compiler.getOutputs();
+          // Refresh resources to make new target files visible. Unchanged
+          // outputs were not touched and don't need a refresh.
+          List<File> outputs = compiler.getWrittenOutputs();
           if (!outputs.isEmpty()) {
             for (File output : outputs) {
               allOutputs.add(output);
@@ -398,6 +367,14 @@ public class CodeUpdater implements IResourceChangeListener {
       }
     }
 
+    for (BuildCache buildCache : usedCaches) {
+      try {
+        buildCache.save();
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Could not write uxml build cache", e);
+      }
+    }
+
     UpdateWorkspaceJob job = new UpdateWorkspaceJob(allOutputs);
     job.schedule();
 
@@ -412,6 +389,30 @@ public class CodeUpdater implements IResourceChangeListener {
     cachedMeta = null;
   }
 
+  /**
+   * Returns build cache for project or null if project has no working location.
+   */
+  BuildCache getBuildCache(IProject project) {
+    synchronized (buildCaches) {
+      return getBuildCacheLocked(project);
+    }
+  }
+
+  private static BuildCache getBuildCacheLocked(IProject project) {
+    BuildCache buildCache = buildCaches.get(project);
+    if (buildCache == null) {
+      if (Activator.getDefault() == null) {
+        return null;
+      }
+      File cacheFile = project.getWorkingLocation(Activator.PLUGIN_ID).append(
+          BUILD_CACHE_FILE_NAME).toFile();
+      buildCache = new BuildCache(cacheFile);
+      buildCache.load();
+      buildCaches.put(project, buildCache);
+    }
+    return buildCache;
+  }
+
   /**
    * Removes all generated files in genfiles.
    */
@@ -435,6 +436,38 @@ public class CodeUpdater implements IResourceChangeListener {
     }
   }
 
+  /**
+   * Deletes files generated for removed sources.
+   * @param project project the sources belonged to.
+   * @param sources removed markup files.
+   */
+  public void removeGenFiles(IProject project, List<IResource> sources) {
+    BuildCache buildCache = getBuildCache(project);
+    if (buildCache == null || sources.isEmpty()) {
+      return;
+    }
+    List<File> removedOutputs = Lists.newArrayList();
+    for (IResource source : sources) {
+      if (source.getLocation() == null) {
+        continue;
+      }
+      for (File output : buildCache.remove(source.getLocation().toFile())) {
+        if (output.exists() && validateFileIsGeneratedFile(output) && output.delete()) {
+          removedOutputs.add(output);
+        }
+      }
+    }
+    try {
+      buildCache.save();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Could not write uxml build cache", e);
+    }
+    if (!removedOutputs.isEmpty()) {
+      UpdateWorkspaceJob job = new UpdateWorkspaceJob(removedOutputs);
+      job.schedule();
+    }
+  }
+
   private boolean createDartToX(IProject project) {
     dartToX = new DartToXCompiler();
     ProjectItemMetadata meta = UXMLProjectMetadata.getProjectPreferences(project);
@@ -609,6 +642,9 @@ public class CodeUpdater implements IResourceChangeListener {
 
   /**
    * Refreshes files in workspace.
+   *
+   * <p>Each containing folder is refreshed once and all changes are made in a
+   * single workspace operation so listeners receive one batched delta.
    */
   static class UpdateWorkspaceJob extends Job {
     private List<File> outputs;
@@ -621,21 +657,49 @@ public class CodeUpdater implements IResourceChangeListener {
     @Override
     public IStatus run(IProgressMonitor monitor) {
       monitor.beginTask("Updating uxml workspace", 1);
+      if (!outputs.isEmpty()) {
+        final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        try {
+          workspace.run(new IWorkspaceRunnable() {
+            @Override
+            public void run(IProgressMonitor runMonitor) throws CoreException {
+              refreshOutputs(workspace.getRoot(), runMonitor);
+            }
+          }, null, IWorkspace.AVOID_UPDATE, monitor);
+        } catch (CoreException e) {
+          logger.log(Level.SEVERE, "workspace update failed after compile", e);
+        }
+      }
+      monitor.worked(1);
+      monitor.done();
+      return Status.OK_STATUS;
+    }
+
+    private void refreshOutputs(IWorkspaceRoot root, IProgressMonitor monitor) {
+      Set<IContainer> refreshedFolders = Sets.newHashSet();
+      List<IFile> outputFiles = Lists.newArrayList();
       for (File output : outputs) {
-        IWorkspaceRoot myWorkspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
-        IFile[] files = myWorkspaceRoot.findFilesForLocationURI(output.toURI());
-        for (IFile f : files) {
+        for (IFile f : root.findFilesForLocationURI(output.toURI())) {
+          outputFiles.add(f);
+          IContainer folder = f.getParent();
+          if (refreshedFolders.add(folder)) {
+            try {
+              folder.refreshLocal(IResource.DEPTH_ONE, monitor);
+            } catch (CoreException e) {
+              logger.log(Level.SEVERE, "workspace update failed after compile", e);
+            }
+          }
+        }
+      }
+      for (IFile f : outputFiles) {
+        if (f.exists()) {
           try {
-            f.refreshLocal(1, null);
             f.setDerived(true, monitor);
           } catch (CoreException e) {
             logger.log(Level.SEVERE, "workspace update failed after compile", e);
           }
         }
       }
-      monitor.worked(1);
-      monitor.done();
-      return Status.OK_STATUS;
     }
   }
 
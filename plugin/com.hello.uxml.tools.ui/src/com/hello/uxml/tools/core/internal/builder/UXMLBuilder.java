@@ -2,23 +2,34 @@
 package com.hello.uxml.tools.core.internal.builder;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.hello.uxml.tools.codegen.BuildCache;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Implements builder for UXML Project Nature to recompile all
  * uxml files when doing a full_build.
- * (Incremental updates are handled through resource change listener).
+ *
+ * <p>Incremental builds recompile changed markup and dart files and the files
+ * that import them, using the import graph recorded in the project build
+ * cache, and delete outputs of removed markup files. The builder is the only
+ * place workspace changes are compiled.
  *
  * @author ferhat
  */
@@ -44,14 +55,48 @@ public class UXMLBuilder extends IncrementalProjectBuilder {
     }
 
     public boolean visit(IResource resource) {
-      if (resource instanceof IFile && (resource.getName().endsWith(".hts") ||
-        resource.getName().endsWith(".uxml"))) {
+      if (resource instanceof IFile && isMarkupFile(resource)) {
         codeUpdater.createUpdateInfo(resource, targetList);
       }
       return true; // continue visiting children.
     }
   }
 
+  /**
+   * Collects changed and removed files from a build delta.
+   */
+  static class UxmlDeltaVisitor implements IResourceDeltaVisitor {
+    private final Set<IResource> changed = Sets.newLinkedHashSet();
+    private final List<IResource> removed = Lists.newArrayList();
+
+    public boolean visit(IResourceDelta delta) {
+      IResource resource = delta.getResource();
+      if (resource.getType() != IResource.FILE || resource.isDerived()) {
+        return true;
+      }
+      switch (delta.getKind()) {
+        case IResourceDelta.ADDED:
+          changed.add(resource);
+          break;
+        case IResourceDelta.REMOVED:
+          if (isMarkupFile(resource)) {
+            removed.add(resource);
+          }
+          // Files importing a removed file need to report the missing import.
+          changed.add(resource);
+          break;
+        case IResourceDelta.CHANGED:
+          if ((delta.getFlags() & IResourceDelta.CONTENT) != 0) {
+            changed.add(resource);
+          }
+          break;
+        default:
+          break;
+      }
+      return true;
+    }
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -66,7 +111,9 @@ public class UXMLBuilder extends IncrementalProjectBuilder {
     } else {
       IResourceDelta delta = getDelta(project);
       if (delta == null) {
-        fullBuild(monitor, project);
+        // No saved state, let the build cache skip files that are up to date
+        // instead of regenerating the whole project.
+        cachedBuild(monitor, project);
       } else {
         incrementalBuild(delta, monitor);
       }
@@ -103,7 +150,68 @@ public class UXMLBuilder extends IncrementalProjectBuilder {
     }
   }
 
+  /**
+   * Compiles all markup files in project, skipping up-to-date files.
+   */
+  protected void cachedBuild(final IProgressMonitor monitor, final IProject project)
+      throws CoreException {
+    CodeUpdater codeUpdater = CodeUpdater.getDefault();
+    List<CodeUpdater.UpdateInfo> updateList = Lists.newArrayList();
+    project.accept(new UxmlResourceVisitor(codeUpdater, updateList));
+    codeUpdater.compileUpdates(updateList);
+    codeUpdater.buildAll(project);
+  }
+
+  /**
+   * Compiles changed markup files and their dependents and removes outputs
+   * of deleted markup files.
+   */
   protected void incrementalBuild(IResourceDelta delta,
       IProgressMonitor monitor) throws CoreException {
+    IProject project = getProject();
+    CodeUpdater codeUpdater = CodeUpdater.getDefault();
+    UxmlDeltaVisitor visitor = new UxmlDeltaVisitor();
+    delta.accept(visitor);
+    if (visitor.changed.isEmpty()) {
+      return;
+    }
+
+    codeUpdater.removeGenFiles(project, visitor.removed);
+
+    // Add markup files that imported a changed file.
+    Set<IResource> targets = Sets.newLinkedHashSet();
+    BuildCache buildCache = codeUpdater.getBuildCache(project);
+    IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+    for (IResource resource : visitor.changed) {
+      if (resource.exists() && (isMarkupFile(resource) || isDartFile(resource))) {
+        targets.add(resource);
+      }
+      if (buildCache == null || resource.getLocation() == null) {
+        continue;
+      }
+      for (File dependent : buildCache.getDependents(resource.getLocation().toFile())) {
+        for (IFile file : root.findFilesForLocationURI(dependent.toURI())) {
+          if (file.exists() && project.equals(file.getProject())) {
+            targets.add(file);
+          }
+        }
+      }
+    }
+
+    List<CodeUpdater.UpdateInfo> updateList = Lists.newArrayList();
+    for (IResource resource : targets) {
+      codeUpdater.createUpdateInfo(resource, updateList);
+    }
+    if (!updateList.isEmpty()) {
+      codeUpdater.compileUpdates(updateList);
+    }
+  }
+
+  private static boolean isMarkupFile(IResource resource) {
+    return resource.getName().endsWith(".hts") || resource.getName().endsWith(".uxml");
+  }
+
+  private static boolean isDartFile(IResource resource) {
+    return "dart".equalsIgnoreCase(resource.getFileExtension());
   }
 }
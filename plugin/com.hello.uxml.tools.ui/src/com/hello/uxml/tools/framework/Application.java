@@ -41,6 +41,10 @@ public class Application extends UxmlElement {
    */
   private Map<String, UIElement> radioGroups = new HashMap<String, UIElement>();
 
+  /** Accessors of plain object key values by class and key name. */
+  private Map<Class<?>, Map<String, PropertyAccessor>> accessors =
+      new HashMap<Class<?>, Map<String, PropertyAccessor>>();
+
   private static UIElement mouseCaptureTarget;
   // Reusable event argument.
   private static MouseEventArgs mouseArgs = new MouseEventArgs();
@@ -288,6 +292,17 @@ public class Application extends UxmlElement {
     return rootSurface;
   }
 
+  /**
+   * Asks host to run UpdateQueue.flush again for work left by last flush.
+   * Default implementation refreshes root surface, hosts that can schedule
+   * a frame without repainting should override.
+   */
+  protected void requestFrame() {
+    if (rootSurface != null) {
+      rootSurface.updateView();
+    }
+  }
+
   /**
    * Closes application and releases resources.
    */
@@ -309,6 +324,44 @@ public class Application extends UxmlElement {
   protected void writeDynamicValue(Object source, String keyName, Object value) {
   }
 
+  /**
+   * Returns accessor for a key value of objects of a class. Accessors are
+   * created once per class and key.
+   */
+  public PropertyAccessor getPropertyAccessor(Class<?> ownerClass, String keyName) {
+    Map<String, PropertyAccessor> classAccessors = accessors.get(ownerClass);
+    if (classAccessors == null) {
+      classAccessors = new HashMap<String, PropertyAccessor>();
+      accessors.put(ownerClass, classAccessors);
+    }
+    PropertyAccessor accessor = classAccessors.get(keyName);
+    if (accessor == null) {
+      accessor = createPropertyAccessor(ownerClass, keyName);
+      classAccessors.put(keyName, accessor);
+    }
+    return accessor;
+  }
+
+  /**
+   * Creates accessor for a key value of objects of a class. Default
+   * implementation looks up the key on every access through readDynamicValue
+   * and writeDynamicValue. Platforms that support reflection override to
+   * return a {@link ReflectivePropertyAccessor}.
+   */
+  protected PropertyAccessor createPropertyAccessor(Class<?> ownerClass, final String keyName) {
+    return new PropertyAccessor() {
+      @Override
+      public Object getValue(Object source) {
+        return readDynamicValue(source, keyName);
+      }
+
+      @Override
+      public void setValue(Object target, Object value) {
+        writeDynamicValue(target, keyName, value);
+      }
+    };
+  }
+
   /**
    * Verifies that a class has been loaded. Classes have to be loaded for
    * PropertyDefinitions to be registered.
@@ -4,11 +4,22 @@ import com.hello.uxml.tools.framework.effects.Effect;
 import com.hello.uxml.tools.framework.events.ChromeHandler;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Creates element tree for a control's visual look and behaviour.
  *
+ * <p>Pooling is off by default. When a max pool size is set, element trees
+ * that are no longer used can be returned with {@link #recycle}. Bindings
+ * of the tree to the target element are detached and the tree is pooled for
+ * that target. The next apply call for the same target binds the tree again
+ * and reapplies chrome properties and controller instead of creating a new
+ * tree. Pooled trees keep their target alive until {@link #clearPool} is
+ * called for it.
+ *
  * @author ferhat@(Ferhat Buyukkokten)
  */
 public class Chrome extends UxmlElement {
@@ -17,6 +28,32 @@ public class Chrome extends UxmlElement {
   private List<Effect> effects;
   private ChromeHandler createElementHandler;
 
+  /** Default number of element trees kept for reuse per target. */
+  public static final int DEFAULT_MAX_POOL_SIZE = 0;
+
+  /** Detached element trees waiting for reuse by target element. */
+  private Map<UIElement, List<UIElement>> pools;
+  private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+  private int poolSize;
+
+  /** Chrome creating an element tree in apply and its target element. */
+  private static Chrome applyingChrome;
+  private static UIElement applyingTarget;
+
+  /**
+   * Property definitions and values applied to target by the element tree
+   * creator. Recorded on first apply so pooled trees can reapply them.
+   */
+  private List<Object> targetProperties;
+  private boolean targetPropertiesRecorded;
+
+  /** Set if the element tree creator sets a controller on target. */
+  private boolean createsController;
+
+  /** Number of apply calls and how many were served from pool. */
+  private int applyCount;
+  private int reuseCount;
+
   /**
    * Constructor.
    */
@@ -51,13 +88,219 @@ public class Chrome extends UxmlElement {
   }
 
   /**
-   * Overridable function that creates the element tree.
+   * Returns element tree for target element. Reuses a tree recycled for the
+   * same target if one is pooled.
    */
   public UIElement apply(UIElement targetElement) {
+    ++applyCount;
+    List<UIElement> pool = (pools == null) ? null : pools.get(targetElement);
+    if (pool != null) {
+      UIElement element = pool.remove(pool.size() - 1);
+      if (pool.isEmpty()) {
+        pools.remove(targetElement);
+      }
+      --poolSize;
+      ++reuseCount;
+      reapply(targetElement);
+      attachBindings(element, targetElement);
+      return element;
+    }
+    if (targetPropertiesRecorded) {
+      return createElements(targetElement);
+    }
+    Controller prevController = Controller.getTargetController(targetElement);
+    Chrome prevChrome = applyingChrome;
+    UIElement prevTarget = applyingTarget;
+    applyingChrome = this;
+    applyingTarget = targetElement;
+    try {
+      return createElements(targetElement);
+    } finally {
+      applyingChrome = prevChrome;
+      applyingTarget = prevTarget;
+      targetPropertiesRecorded = true;
+      createsController = Controller.getTargetController(targetElement) != prevController;
+    }
+  }
+
+  /**
+   * Sets the default value of a property defined on chrome if it has not
+   * been changed yet. Called by element tree creators.
+   */
+  public static void applyProperty(UxmlElement targetObject, PropertyDefinition key,
+      Object value) {
+    Chrome chrome = applyingChrome;
+    if ((chrome != null) && (applyingTarget == targetObject)) {
+      if (chrome.targetProperties == null) {
+        chrome.targetProperties = new ArrayList<Object>();
+      }
+      chrome.targetProperties.add(key);
+      chrome.targetProperties.add(value);
+    }
+    if (!targetObject.overridesProperty(key)) {
+      targetObject.setProperty(key, value);
+    }
+  }
+
+  /**
+   * Performs work the element tree creator does on target when a pooled
+   * tree is applied.
+   */
+  private void reapply(UIElement targetElement) {
+    if (targetProperties != null) {
+      for (int i = 0; i < targetProperties.size(); i += 2) {
+        PropertyDefinition key = (PropertyDefinition) targetProperties.get(i);
+        if (!targetElement.overridesProperty(key)) {
+          targetElement.setProperty(key, targetProperties.get(i + 1));
+        }
+      }
+    }
+    if (createsController) {
+      Controller controller = Controller.getTargetController(targetElement);
+      if (controller != null) {
+        controller.preInit();
+      }
+    }
+  }
+
+  /**
+   * Returns an element tree created by apply for targetElement to the pool.
+   * The tree has to be detached from its parent.
+   *
+   * @return true if tree was pooled.
+   */
+  public boolean recycle(UIElement element, UIElement targetElement) {
+    if ((element == null) || (element.getParent() != null)) {
+      return false;
+    }
+    // Detach even if the tree is dropped so the target doesn't keep it
+    // alive through its listeners.
+    detachBindings(element, targetElement);
+    if (maxPoolSize == 0) {
+      return false;
+    }
+    if (pools == null) {
+      pools = new IdentityHashMap<UIElement, List<UIElement>>();
+    }
+    List<UIElement> pool = pools.get(targetElement);
+    if (pool == null) {
+      pool = new ArrayList<UIElement>();
+      pools.put(targetElement, pool);
+    } else if (pool.size() >= maxPoolSize) {
+      return false;
+    }
+    pool.add(element);
+    ++poolSize;
+    return true;
+  }
+
+  /**
+   * Sets/returns maximum number of element trees kept for reuse per target.
+   */
+  public void setMaxPoolSize(int value) {
+    maxPoolSize = (value < 0) ? 0 : value;
+    if (pools == null) {
+      return;
+    }
+    Iterator<List<UIElement>> iter = pools.values().iterator();
+    while (iter.hasNext()) {
+      List<UIElement> pool = iter.next();
+      while (pool.size() > maxPoolSize) {
+        pool.remove(pool.size() - 1);
+        --poolSize;
+      }
+      if (pool.isEmpty()) {
+        iter.remove();
+      }
+    }
+  }
+
+  public int getMaxPoolSize() {
+    return maxPoolSize;
+  }
+
+  /**
+   * Returns number of pooled element trees.
+   */
+  public int getPoolSize() {
+    return poolSize;
+  }
+
+  /**
+   * Returns fraction of apply calls that reused a pooled tree.
+   */
+  public double getPoolHitRate() {
+    return (applyCount == 0) ? 0.0 : ((double) reuseCount / applyCount);
+  }
+
+  /**
+   * Removes pooled element trees.
+   */
+  public void clearPool() {
+    pools = null;
+    poolSize = 0;
+  }
+
+  /**
+   * Removes element trees pooled for target element.
+   */
+  public void clearPool(UIElement targetElement) {
+    List<UIElement> pool = (pools == null) ? null : pools.remove(targetElement);
+    if (pool != null) {
+      poolSize -= pool.size();
+    }
+  }
+
+  /**
+   * Overridable function that creates the element tree.
+   */
+  protected UIElement createElements(UIElement targetElement) {
     if (createElementHandler != null) {
       return createElementHandler.createElements(targetElement);
     }
     ContentContainer contentContainer = new ContentContainer();
     return contentContainer;
   }
+
+  /**
+   * Detaches bindings of tree from target element and resets interaction
+   * state.
+   */
+  private void detachBindings(UIElement element, UIElement targetElement) {
+    List<PropertyBinding> bindings = element.getBindingsIfCreated();
+    if (bindings != null) {
+      for (int i = 0; i < bindings.size(); ++i) {
+        PropertyBinding binding = bindings.get(i);
+        if (binding.isAttached() && (binding.getSource() == targetElement)) {
+          binding.detach();
+        }
+      }
+    }
+    if (element.getBooleanProperty(UIElement.isMouseOverPropDef)) {
+      element.setBooleanProperty(UIElement.isMouseOverPropDef, false);
+    }
+    int childCount = element.getRawChildCount();
+    for (int i = 0; i < childCount; ++i) {
+      detachBindings(element.getRawChild(i), targetElement);
+    }
+  }
+
+  /**
+   * Binds detached bindings of tree to new target element.
+   */
+  private void attachBindings(UIElement element, UIElement targetElement) {
+    List<PropertyBinding> bindings = element.getBindingsIfCreated();
+    if (bindings != null) {
+      for (int i = 0; i < bindings.size(); ++i) {
+        PropertyBinding binding = bindings.get(i);
+        if (!binding.isAttached() && (binding.getTargetObject() != null)) {
+          binding.rebind(targetElement);
+        }
+      }
+    }
+    int childCount = element.getRawChildCount();
+    for (int i = 0; i < childCount; ++i) {
+      attachBindings(element.getRawChild(i), targetElement);
+    }
+  }
 }
@@ -51,6 +51,15 @@ public class ContentContainer extends Control {
     return chromeTree != null ? chromeTree : cachedContentControl;
   }
 
+  @Override
+  protected void invalidateChildInheritedValues(PropertyDefinition propDef) {
+    super.invalidateChildInheritedValues(propDef);
+    // Content control is not a raw child while a chrome tree is shown.
+    if ((chromeTree != null) && (cachedContentControl != null)) {
+      cachedContentControl.invalidateInheritedValues(propDef);
+    }
+  }
+
   protected void updateContent(Object newContent) {
     if (cachedContentControl != null) {
       removeRawChild(cachedContentControl);
@@ -4,11 +4,16 @@ import com.hello.uxml.tools.framework.events.ChangeType;
 import com.hello.uxml.tools.framework.events.CollectionChangedEvent;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Implements an observable collection.
  *
+ * <p>Changes made between beginUpdate and endUpdate raise a single change
+ * event. Changes that form one contiguous add, remove or modify range are
+ * reported as that range, others as a reset.
+ *
  * @author ferhat
  */
 public class ElementCollection extends UxmlElement {
@@ -18,6 +23,13 @@ public class ElementCollection extends UxmlElement {
   /** instance of event arguments that is reused across multiple collection changes */
   private CollectionChangedEvent cachedChangeEvent;
 
+  /** Nesting depth of beginUpdate calls. */
+  private int updateDepth;
+  /** Change accumulated while updating. Type is null if there is none. */
+  private ChangeType pendingType;
+  private int pendingIndex;
+  private int pendingCount;
+
   public ElementCollection() {
     super();
   }
@@ -41,6 +53,13 @@ public class ElementCollection extends UxmlElement {
     raiseChangedEvent(ChangeType.Add, items.size() - 1, 1);
   }
 
+  /**
+   * Adds items to end of collection.
+   */
+  public void addAll(Collection<?> newItems) {
+    insertRange(size(), newItems);
+  }
+
   /**
    * Inserts item into collection.
    * @param index Insertion index.
@@ -54,6 +73,22 @@ public class ElementCollection extends UxmlElement {
     raiseChangedEvent(ChangeType.Add, index, 1);
   }
 
+  /**
+   * Inserts items into collection.
+   * @param index Insertion index.
+   * @param newItems objects to insert into collection.
+   */
+  public void insertRange(int index, Collection<?> newItems) {
+    if (newItems.isEmpty()) {
+      return;
+    }
+    if (items == null) {
+      items = new ArrayList<Object>();
+    }
+    items.addAll(index, newItems);
+    raiseChangedEvent(ChangeType.Add, index, newItems.size());
+  }
+
   /**
    * Removes item from collection.
    */
@@ -77,14 +112,69 @@ public class ElementCollection extends UxmlElement {
     }
   }
 
+  /**
+   * Removes count items starting at index.
+   */
+  public void removeRange(int index, int count) {
+    if (count <= 0) {
+      return;
+    }
+    if ((index < 0) || ((index + count) > size())) {
+      throw new IndexOutOfBoundsException();
+    }
+    items.subList(index, index + count).clear();
+    raiseChangedEvent(ChangeType.Remove, index, count);
+  }
+
+  /**
+   * Replaces count items starting at index with new items.
+   */
+  public void replaceRange(int index, int count, Collection<?> newItems) {
+    if ((index < 0) || (count < 0) || ((index + count) > size())) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (count == newItems.size()) {
+      if (count == 0) {
+        return;
+      }
+      int itemIndex = index;
+      for (Object item : newItems) {
+        items.set(itemIndex++, item);
+      }
+      raiseChangedEvent(ChangeType.Modify, index, count);
+      return;
+    }
+    beginUpdate();
+    try {
+      removeRange(index, count);
+      insertRange(index, newItems);
+    } finally {
+      endUpdate();
+    }
+  }
+
+  /**
+   * Moves item at fromIndex to toIndex.
+   */
+  public void move(int fromIndex, int toIndex) {
+    if ((fromIndex < 0) || (toIndex < 0) || (fromIndex >= size()) || (toIndex >= size())) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (fromIndex == toIndex) {
+      return;
+    }
+    items.add(toIndex, items.remove(fromIndex));
+    int startIndex = Math.min(fromIndex, toIndex);
+    raiseChangedEvent(ChangeType.Modify, startIndex, Math.abs(toIndex - fromIndex) + 1);
+  }
+
   /**
    * Removes all items from collection.
    */
   public void clear() {
     if ((items != null) && (items.size() != 0)) {
-      int count = items.size();
       items.clear();
-      raiseChangedEvent(ChangeType.Remove, 0, count);
+      raiseChangedEvent(ChangeType.Reset, 0, 0);
     }
   }
 
@@ -95,7 +185,94 @@ public class ElementCollection extends UxmlElement {
     return items.get(index);
   }
 
+  /**
+   * Starts a batch of changes. Change events are held until the matching
+   * endUpdate call.
+   */
+  public void beginUpdate() {
+    ++updateDepth;
+  }
+
+  /**
+   * Ends a batch of changes and raises a single change event for them.
+   */
+  public void endUpdate() {
+    if (updateDepth == 0) {
+      throw new IllegalStateException("endUpdate without beginUpdate");
+    }
+    if (--updateDepth != 0 || pendingType == null) {
+      return;
+    }
+    ChangeType type = pendingType;
+    pendingType = null;
+    if (type == ChangeType.Reset) {
+      dispatchChangedEvent(type, 0, size());
+    } else {
+      dispatchChangedEvent(type, pendingIndex, pendingCount);
+    }
+  }
+
+  /**
+   * Returns true if changes are batched.
+   */
+  public boolean isUpdating() {
+    return updateDepth != 0;
+  }
+
   private void raiseChangedEvent(ChangeType type, int index, int count) {
+    if (updateDepth == 0) {
+      dispatchChangedEvent(type, index, count);
+    } else if (pendingType == null) {
+      pendingType = type;
+      pendingIndex = index;
+      pendingCount = count;
+    } else if (!mergePendingChange(type, index, count)) {
+      pendingType = ChangeType.Reset;
+    }
+  }
+
+  /**
+   * Merges change into pending change if the result is a single range.
+   */
+  private boolean mergePendingChange(ChangeType type, int index, int count) {
+    int pendingEnd = pendingIndex + pendingCount;
+    switch (pendingType) {
+      case Add:
+        if ((type == ChangeType.Add) && (index >= pendingIndex) && (index <= pendingEnd)) {
+          pendingCount += count;
+          return true;
+        }
+        // Modifying items that were just added doesn't change the range.
+        return (type == ChangeType.Modify) && (index >= pendingIndex) &&
+            ((index + count) <= pendingEnd);
+      case Remove:
+        if (type != ChangeType.Remove) {
+          return false;
+        }
+        if (index == pendingIndex) {
+          pendingCount += count;
+          return true;
+        }
+        if ((index + count) == pendingIndex) {
+          pendingIndex = index;
+          pendingCount += count;
+          return true;
+        }
+        return false;
+      case Modify:
+        if ((type != ChangeType.Modify) || (index > pendingEnd) ||
+            ((index + count) < pendingIndex)) {
+          return false;
+        }
+        pendingIndex = Math.min(pendingIndex, index);
+        pendingCount = Math.max(pendingEnd, index + count) - pendingIndex;
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private void dispatchChangedEvent(ChangeType type, int index, int count) {
     if (cachedChangeEvent == null) {
       cachedChangeEvent = new CollectionChangedEvent(this, type, index, count);
     } else {
@@ -8,7 +8,11 @@ import com.hello.uxml.tools.framework.events.EventHandler;
 import com.hello.uxml.tools.framework.events.EventManager;
 import com.hello.uxml.tools.framework.events.EventNotifier;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Provides base class for controls that contain a collection of elements.
@@ -17,6 +21,9 @@ import java.util.EnumSet;
  */
 public class ItemsContainer extends Control {
 
+  /** Default number of items realized outside viewport when virtualized. */
+  static final int DEFAULT_OVERSCAN = 2;
+
   /**
    * Cached value of items property.
    */
@@ -24,6 +31,13 @@ public class ItemsContainer extends Control {
   private UIElementContainer visualContainer;
   private EventHandler collectionListener;
 
+  /** Elements generated by item chrome and the chrome that created them. */
+  private Map<UIElement, Chrome> chromeElements = new IdentityHashMap<UIElement, Chrome>();
+
+  /** Elements that have IsFirst and IsLast set. */
+  private UIElement firstElement;
+  private UIElement lastElement;
+
   public static PropertyDefinition itemsPropDef = PropertySystem.register("Items", Items.class,
       ItemsContainer.class,
       new PropertyData(null, EnumSet.of(PropertyFlags.None), new PropertyChangeListener() {
@@ -56,6 +70,31 @@ public class ItemsContainer extends Control {
           }
       }));
 
+  /** Virtualized Property Definition */
+  public static PropertyDefinition virtualizedPropDef = PropertySystem.register("Virtualized",
+      Boolean.class, ItemsContainer.class,
+      new PropertyData(false, EnumSet.of(PropertyFlags.None), new PropertyChangeListener() {
+          @Override
+          public void propertyChanged(PropertyChangedEvent e) {
+              ((ItemsContainer) e.getSource()).virtualizedChangedHandler();
+          }
+      }));
+
+  /** Overscan Property Definition */
+  public static PropertyDefinition overscanPropDef = PropertySystem.register("Overscan",
+      Integer.class, ItemsContainer.class,
+      new PropertyData(DEFAULT_OVERSCAN, EnumSet.of(PropertyFlags.None),
+          new PropertyChangeListener() {
+          @Override
+          public void propertyChanged(PropertyChangedEvent e) {
+              ItemsContainer element = (ItemsContainer) e.getSource();
+              if (element.visualContainer instanceof VirtualizingVBox) {
+                ((VirtualizingVBox) element.visualContainer).setOverscan(
+                    ((Integer) e.getNewValue()).intValue());
+              }
+          }
+      }));
+
   /** IsFirst property definition */
   public static PropertyDefinition isFirstPropDef = PropertySystem.register("IsFirst",
       Boolean.class, ItemsContainer.class,
@@ -81,46 +120,33 @@ public class ItemsContainer extends Control {
       @Override
       public void handleEvent(EventNotifier targetObject, EventArgs e) {
         CollectionChangedEvent changeEvent = (CollectionChangedEvent) e;
-        if (changeEvent.getType() == ChangeType.Add) {
-          generateElements(changeEvent.getIndex(), changeEvent.getCount());
-        } else if (changeEvent.getType() == ChangeType.Remove) {
-          int startIndex = changeEvent.getIndex();
-          int itemCount = changeEvent.getCount();
-          for (int i = (startIndex + itemCount) - 1; i >= startIndex; --i) {
-            UIElement child = visualContainer.getChild(i);
-            Object item;
-            if (i == 0) {
-              // removing first item
-              if (child instanceof Item) {
-                ((Item) child).setProperty(isFirstPropDef, false);
-              }
-              visualContainer.removeChild(child);
-              if (getItems().size() != 0) {
-                item = getItems().get(0);
-                if (item instanceof Item) {
-                  ((Item) item).setProperty(isFirstPropDef, true);
-                }
-              }
-            } else if (i == (getItems().size() - 1)) {
-              // removing last item
-              visualContainer.removeChild(child);
-            } else {
-              if (child instanceof Item) {
-                ((Item) child).setProperty(isLastPropDef, false);
-              }
-              visualContainer.removeChild(child);
-              if (getItems().size() != 0) {
-                item = getItems().get(getItems().size() - 1);
-                if (item instanceof Item) {
-                  ((Item) item).setProperty(isLastPropDef, true);
-                }
-              }
-              visualContainer.removeChild(child);
-            }
-          }
-        } else {
-          // TODO(ferhat) implement itemscontainer modified handler when Items gets modify method
+        if (visualContainer == null) {
+          return;
+        }
+        int index = changeEvent.getIndex();
+        int count = changeEvent.getCount();
+        if (visualContainer instanceof VirtualizingVBox) {
+          ((VirtualizingVBox) visualContainer).itemsChanged(
+              changeEvent.getType() == ChangeType.Reset ? 0 : index);
+          return;
+        }
+        switch (changeEvent.getType()) {
+          case Add:
+            insertElements(index, count);
+            break;
+          case Remove:
+            removeElements(index, count);
+            break;
+          case Modify:
+            removeElements(index, count);
+            insertElements(index, count);
+            break;
+          case Reset:
+            removeItemElements();
+            insertElements(0, cachedItems.size());
+            break;
         }
+        updateEndFlags();
       }
     };
   }
@@ -154,23 +180,69 @@ public class ItemsContainer extends Control {
   }
 
   private void generateElements(int startIndex, int count) {
-    Object item;
+    if (visualContainer instanceof VirtualizingVBox) {
+      // Elements are realized on measure.
+      ((VirtualizingVBox) visualContainer).itemsChanged(startIndex);
+      return;
+    }
+    insertElements(startIndex, count);
+    updateEndFlags();
+  }
+
+  /**
+   * Creates elements for count items starting at index.
+   */
+  private void insertElements(int startIndex, int count) {
+    for (int i = 0; i < count; ++i) {
+      visualContainer.insertChild(startIndex + i,
+          generateElement(cachedItems.get(startIndex + i)));
+    }
+  }
+
+  /**
+   * Removes elements of count items starting at index.
+   */
+  private void removeElements(int startIndex, int count) {
+    for (int i = (startIndex + count) - 1; i >= startIndex; --i) {
+      UIElement child = visualContainer.getChild(i);
+      visualContainer.removeChildAt(i);
+      // Clear state so a recycled element doesn't keep it.
+      if (child == firstElement) {
+        child.setProperty(isFirstPropDef, false);
+        firstElement = null;
+      }
+      if (child == lastElement) {
+        child.setProperty(isLastPropDef, false);
+        lastElement = null;
+      }
+      recycleElement(child);
+    }
+  }
 
-    if (startIndex != 0) {
-      item = cachedItems.get(cachedItems.size() - 1);
-      if (item instanceof Item) {
-        ((Item) item).setProperty(isLastPropDef, false);
+  /**
+   * Moves IsFirst and IsLast state to current first and last elements.
+   */
+  private void updateEndFlags() {
+    int childCount = visualContainer.getChildCount();
+    UIElement first = (childCount == 0) ? null : visualContainer.getChild(0);
+    UIElement last = (childCount == 0) ? null : visualContainer.getChild(childCount - 1);
+    if (firstElement != first) {
+      if (firstElement != null) {
+        firstElement.setProperty(isFirstPropDef, false);
+      }
+      firstElement = first;
+      if (first != null) {
+        first.setProperty(isFirstPropDef, true);
       }
     }
-    for (int i = startIndex; i < count; ++i) {
-      item = cachedItems.get(i);
-      if ((i == 0) && (item instanceof Item)) {
-        ((Item) item).setProperty(isFirstPropDef, true);
+    if (lastElement != last) {
+      if (lastElement != null) {
+        lastElement.setProperty(isLastPropDef, false);
       }
-      if ((i == (count - 1)) && (item instanceof Item)) {
-        ((Item) item).setProperty(isLastPropDef, true);
+      lastElement = last;
+      if (last != null) {
+        last.setProperty(isLastPropDef, true);
       }
-      visualContainer.addChild(generateElement(item));
     }
   }
 
@@ -192,6 +264,7 @@ public class ItemsContainer extends Control {
         return label;
       } else {
         UIElement newItem = chrome.apply(this);
+        chromeElements.put(newItem, chrome);
         if (newItem instanceof ContentContainer) {
           ((ContentContainer) newItem).setContent(item);
         }
@@ -200,9 +273,64 @@ public class ItemsContainer extends Control {
     }
   }
 
-  private void itemChromeChangedHandler(Chrome newChrome) {
-    if (visualContainer != null) {
+  /**
+   * Updates an element generated for another item to show item. Returns
+   * false if element can't be reused. Called by virtualizing containers,
+   * subclasses that override generateElement should override to reuse
+   * their elements.
+   */
+  protected boolean reuseElement(UIElement element, Object item) {
+    if (getItemChrome() == null) {
+      if (element instanceof Label) {
+        ((Label) element).setText(item.toString());
+        return true;
+      }
+      return false;
+    }
+    if (element instanceof ContentContainer) {
+      ((ContentContainer) element).setContent(item);
+    }
+    return true;
+  }
+
+  /**
+   * Returns a detached element generated by item chrome to the chrome's pool.
+   */
+  void recycleElement(UIElement element) {
+    Chrome chrome = chromeElements.remove(element);
+    if (chrome != null) {
+      chrome.recycle(element, this);
+    }
+  }
+
+  /**
+   * Detaches all item elements and recycles them.
+   */
+  private void removeItemElements() {
+    if (visualContainer == null) {
+      return;
+    }
+    if (visualContainer instanceof VirtualizingVBox) {
+      // Virtualizing container recycles its own elements.
       visualContainer.removeAllChildren();
+      return;
+    }
+    removeElements(0, visualContainer.getChildCount());
+  }
+
+  private void itemChromeChangedHandler(Chrome newChrome) {
+    List<Chrome> oldChromes = new ArrayList<Chrome>();
+    for (Chrome chrome : chromeElements.values()) {
+      if (!oldChromes.contains(chrome)) {
+        oldChromes.add(chrome);
+      }
+    }
+    removeItemElements();
+    // Trees pooled for this container by previous chrome are not reused.
+    for (int i = 0; i < oldChromes.size(); ++i) {
+      if (oldChromes.get(i) != newChrome) {
+        oldChromes.get(i).clearPool(this);
+      }
     }
 
     Items items = getItems();
@@ -219,13 +347,36 @@ public class ItemsContainer extends Control {
     if (visualContainer == null) {
       if (getContainerChrome() != null) {
         visualContainer = (UIElementContainer) getContainerChrome().apply(this);
+      } else if (getVirtualized()) {
+        visualContainer = new VirtualizingVBox();
       } else {
         visualContainer = new VBox();
       }
+      if (visualContainer instanceof VirtualizingVBox) {
+        VirtualizingVBox virtualContainer = (VirtualizingVBox) visualContainer;
+        virtualContainer.setOwner(this);
+        virtualContainer.setOverscan(getOverscan());
+      }
       addRawChild(visualContainer);
     }
   }
 
+  /**
+   * Recreates visual container when virtualization is turned on or off.
+   */
+  private void virtualizedChangedHandler() {
+    if ((visualContainer == null) || (getContainerChrome() != null)) {
+      return;
+    }
+    removeItemElements();
+    removeRawChild(visualContainer);
+    visualContainer = null;
+    if (cachedItems != null) {
+      createVisualContainer();
+      generateElements(0, cachedItems.size());
+    }
+  }
+
   /**
    * Updates visual container with new items and adds listener to collection.
    */
@@ -233,9 +384,7 @@ public class ItemsContainer extends Control {
     if (cachedItems != null) {
       cachedItems.removeListener(CollectionChangedEvent.changeEvent, collectionListener);
     }
-    if (visualContainer != null) {
-      visualContainer.removeAllChildren();
-    }
+    removeItemElements();
     cachedItems = newItems;
     if (newItems != null) {
       if (visualContainer == null) {
@@ -268,6 +417,29 @@ public class ItemsContainer extends Control {
     return (Chrome) getProperty(itemChromePropDef);
   }
 
+  /**
+   * Sets or returns whether elements are only created for visible items.
+   */
+  public void setVirtualized(boolean value) {
+    setProperty(virtualizedPropDef, value);
+  }
+
+  public boolean getVirtualized() {
+    return ((Boolean) getProperty(virtualizedPropDef)).booleanValue();
+  }
+
+  /**
+   * Sets or returns number of items realized before and after visible items
+   * when virtualized.
+   */
+  public void setOverscan(int value) {
+    setProperty(overscanPropDef, value);
+  }
+
+  public int getOverscan() {
+    return ((Integer) getProperty(overscanPropDef)).intValue();
+  }
+
   /**
    * Sets or returns container chrome.
    */
@@ -289,6 +461,15 @@ public class ItemsContainer extends Control {
     return visualContainer;
   }
 
+  @Override
+  protected void invalidateChildInheritedValues(PropertyDefinition propDef) {
+    super.invalidateChildInheritedValues(propDef);
+    // Chrome tree is not a raw child, visual container is exposed instead.
+    if ((chromeTree != null) && (chromeTree != visualContainer)) {
+      chromeTree.invalidateInheritedValues(propDef);
+    }
+  }
+
   protected void containerChromeChangedHandler(Chrome chrome) {
   }
 }
@@ -20,6 +20,8 @@ public abstract class ListBase extends Control implements IItemsHost {
   private PropertyBinding itemChromeBinding;
   private PropertyBinding itemChromeBindingRev;
   private PropertyBinding containerChromeBinding;
+  private PropertyBinding virtualizedBinding;
+  private PropertyBinding overscanBinding;
 
   /** Items Property Definition */
   public static PropertyDefinition itemsPropDef = PropertySystem.register("Items",
@@ -62,6 +64,16 @@ public abstract class ListBase extends Control implements IItemsHost {
       "ContainerChrome", Chrome.class, ListBase.class,
       new PropertyData(null, EnumSet.of(PropertyFlags.None), null));
 
+  /** Virtualized Property Definition */
+  public static PropertyDefinition virtualizedPropDef = PropertySystem.register("Virtualized",
+      Boolean.class, ListBase.class,
+      new PropertyData(false, EnumSet.of(PropertyFlags.None)));
+
+  /** Overscan Property Definition */
+  public static PropertyDefinition overscanPropDef = PropertySystem.register("Overscan",
+      Integer.class, ListBase.class,
+      new PropertyData(ItemsContainer.DEFAULT_OVERSCAN, EnumSet.of(PropertyFlags.None)));
+
   /** SelectionChanged event definition */
   public static EventDefinition selectionChangedEvent = EventManager.register(
       "SelectionChanged", ListBase.class, EventArgs.class, ListBase.class, null);
@@ -133,6 +145,29 @@ public abstract class ListBase extends Control implements IItemsHost {
     return (Chrome) getProperty(containerChromePropDef);
   }
 
+  /**
+   * Sets or returns whether item elements are only created for visible items.
+   */
+  public void setVirtualized(boolean value) {
+    setProperty(virtualizedPropDef, value);
+  }
+
+  public boolean getVirtualized() {
+    return ((Boolean) getProperty(virtualizedPropDef)).booleanValue();
+  }
+
+  /**
+   * Sets or returns number of items realized outside visible area when
+   * virtualized.
+   */
+  public void setOverscan(int value) {
+    setProperty(overscanPropDef, value);
+  }
+
+  public int getOverscan() {
+    return ((Integer) getProperty(overscanPropDef)).intValue();
+  }
+
   /**
    * Sets or returns selected item.
    */
@@ -199,6 +234,10 @@ public abstract class ListBase extends Control implements IItemsHost {
         this, new Object[] {itemChromePropDef});
     itemChromeBindingRev = new PropertyBinding(this, itemChromePropDef,
         container, new Object[] {ItemsContainer.itemChromePropDef});
+    virtualizedBinding = new PropertyBinding(container, ItemsContainer.virtualizedPropDef,
+        this, new Object[] {virtualizedPropDef});
+    overscanBinding = new PropertyBinding(container, ItemsContainer.overscanPropDef,
+        this, new Object[] {overscanPropDef});
     itemsBinding = new PropertyBinding(container, ItemsContainer.itemsPropDef,
         this, new Object[]{itemsPropDef});
   }
@@ -216,6 +255,10 @@ public abstract class ListBase extends Control implements IItemsHost {
     itemChromeBindingRev = null;
     containerChromeBinding.clear();
     containerChromeBinding = null;
+    virtualizedBinding.clear();
+    virtualizedBinding = null;
+    overscanBinding.clear();
+    overscanBinding = null;
     itemsContainer = null;
   }
 
@@ -0,0 +1,23 @@
+package com.hello.uxml.tools.framework;
+
+/**
+ * Defines an interface that reads and writes a named value of objects that
+ * are not elements.
+ *
+ * <p>Property bindings resolve an accessor once per path segment and source
+ * class, so reading a value doesn't require looking up the key.
+ *
+ * @author ferhat
+ */
+public interface PropertyAccessor {
+
+  /**
+   * Returns value of source object.
+   */
+  Object getValue(Object source);
+
+  /**
+   * Sets value of target object.
+   */
+  void setValue(Object target, Object value);
+}
@@ -5,7 +5,9 @@ import com.hello.uxml.tools.framework.events.EventHandler;
 import com.hello.uxml.tools.framework.events.EventNotifier;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -13,17 +15,51 @@ import java.util.logging.Logger;
  * Defines a binding of a target object's property to a chain of properties
  * starting from a source object.
  *
+ * <p>Chain segments can be PropertyDefinitions, PropertyAccessors or property
+ * names. The compiler emits PropertyDefinitions for segments it can resolve.
+ * Names are resolved once to a PropertyDefinition for element sources or to a
+ * PropertyAccessor for other objects, so propagating a change doesn't look up
+ * properties by name.
+ *
+ * <p>Deferred bindings queue target updates to {@link UpdateQueue#flush}, so
+ * a source that changes several times in a frame updates the target once.
+ * Deferred updates are applied in dependency order, a binding whose source
+ * is the target of another queued binding is updated after it.
+ *
  * @author sanjayc@ (Sanjay Chouksey)
  * @author ferhat
  */
 public class PropertyBinding {
   private Object targetObject;
   private Object targetProperty;
-  private List<Object> sourceChain = new ArrayList<Object>();
   private Object[] propChain;
-  private EventHandler listener;
+  /** Property names of chain segments or null if segment was not a name. */
+  private String[] propNames;
+  /** Source class a resolved PropertyAccessor segment belongs to. */
+  private Class<?>[] accessorClasses;
+  /** Bound source object of each chain segment. */
+  private Object[] sources;
+  /** Property each bound source is listened to for changes or null. */
+  private Object[] listenKeys;
+  /** Number of bound sources. */
+  private int sourceCount;
+  private EventHandler listener = new EventHandler() {
+    @Override
+    public void handleEvent(EventNotifier target, EventArgs e) {
+      onPropChange((PropertyChangedEvent) e);
+    }
+  };
   private ValueTransform valueTransform;
   private String transformArg;
+  /** Set when target updates are deferred to UpdateQueue.flush. */
+  private boolean deferred;
+  /** Set when a deferred target update is queued. */
+  private boolean updatePending;
+  private Object pendingValue;
+  /** Number of queued bindings this binding's update waits for. */
+  private int pendingDependencies;
+  /** Queued bindings waiting for this binding's update. */
+  private List<PropertyBinding> dependents;
   private static final String ERROR_MSG_NO_MATCHING_TARGET =
       "onChange: can't find source matching the event target.";
   private static final Logger logger = Logger.getLogger(PropertyBinding.class.getName());
@@ -52,10 +88,17 @@ public class PropertyBinding {
       Object sourceObject, Object[] propertyChain, ValueTransform transform, String transformArg) {
     this.targetObject = targetObject;
     this.targetProperty = targetProperty;
-    sourceChain.add(sourceObject);
-    propChain = new Object[propertyChain.length];
-    for (int i = 0; i < propertyChain.length; i++) {
+    int chainLength = propertyChain.length;
+    propChain = new Object[chainLength];
+    propNames = new String[chainLength];
+    accessorClasses = new Class<?>[chainLength];
+    sources = new Object[chainLength];
+    listenKeys = new Object[chainLength];
+    for (int i = 0; i < chainLength; i++) {
       propChain[i] = propertyChain[i];
+      if (propertyChain[i] instanceof String) {
+        propNames[i] = (String) propertyChain[i];
+      }
     }
     valueTransform = transform;
     this.transformArg = transformArg;
@@ -70,76 +113,137 @@ public class PropertyBinding {
   }
 
   /**
-   * Recursively binds to the source and listens for property change
-   * event on it.
+   * Returns object the property chain starts from.
+   */
+  Object getSource() {
+    return (sourceCount == 0) ? null : sources[0];
+  }
+
+  /**
+   * Returns false if binding was detached from its source.
+   */
+  boolean isAttached() {
+    return sourceCount != 0;
+  }
+
+  /**
+   * Stops listening to sources. Target keeps its value until the binding is
+   * bound to a new source.
+   */
+  void detach() {
+    unbind(0);
+    cancelPendingUpdate();
+  }
+
+  /**
+   * Binds property chain to a new source and updates target.
+   */
+  void rebind(Object source) {
+    unbind(0);
+    bind(source, 0);
+  }
+
+  /**
+   * Sets whether target updates are deferred to the next UpdateQueue flush.
+   * A pending update is applied immediately when deferring is turned off.
+   */
+  public void setDeferred(boolean value) {
+    deferred = value;
+    if (!value) {
+      applyPendingUpdate();
+    }
+  }
+
+  /**
+   * Returns true if target updates are deferred to the next UpdateQueue
+   * flush.
+   */
+  public boolean isDeferred() {
+    return deferred;
+  }
+
+  /**
+   * Binds to the source and the objects reached through the property chain
+   * starting at propChainIndex and listens for property change events on
+   * them.
    *
    * @param source The object to listen for property change event.
-   * @param propChainIndex Chain of properties starting from source.
+   * @param propChainIndex Index into chain of properties starting from source.
    */
   private void bind(Object source, int propChainIndex) {
+    int lastIndex = propChain.length - 1;
+    while (true) {
+      Object propKey = resolveKey(source, propChainIndex);
+      sources[propChainIndex] = source;
+      sourceCount = propChainIndex + 1;
 
-    // now read the first property in the chain
-    Object propName = propChain[propChainIndex];
-
-    // add event listener for property change and collection change events
-    if (source instanceof EventNotifier) {
-      EventNotifier notifier = (EventNotifier) source;
-      PropertyDefinition propDef = null;
-      // use propdefs if source is Element
-      if (propName instanceof PropertyDefinition) {
-        propDef = (PropertyDefinition) propName;
-      } else {
-        propDef = PropertyCache.getPropertyDefinition(
-              ((UxmlElement) source).getClass(), (String) propName);
-        if (propDef != null) {
-          propChain[propChainIndex] = propDef;
-        }
-        propName = propDef;
+      // listen for change event on property
+      if ((propKey instanceof PropertyDefinition) && (source instanceof EventNotifier)) {
+        ((EventNotifier) source).addListener(propKey, listener);
+        listenKeys[propChainIndex] = propKey;
       }
 
-      // listen for change event on propName
-      listener = new EventHandler() {
-        @Override
-        public void handleEvent(EventNotifier target, EventArgs e) {
-          onPropChange((PropertyChangedEvent) e);
-        }
-      };
-      notifier.addListener(propName, listener);
-
       //  TODO(ferhat) if source is model, also listen for collection change events
       //  if (source is Model) {
       //    notifier.addListener(CollectionChangedEvent.eventDef, onCollChange);
       //  }
-    }
 
-    // now get the property value
-    Object prop = null;
-    prop = getProperty(source, propName);
-    if (prop == null) {
-      setProperty(prop);
-      return;
+      // now get the property value
+      Object prop = getProperty(source, propKey);
+      if (prop == null || propChainIndex == lastIndex) {
+        updateTarget(prop);
+        return;
+      }
+      // more items in prop chain, keep going
+      source = prop;
+      ++propChainIndex;
     }
+  }
 
-    // if there are more items in prop chain, keep going
-    if (propChainIndex < propChain.length - 1) {
-      // store this source object in sourceChain
-      sourceChain.add(prop);
-      bind(prop, propChainIndex + 1);
-    } else {
-      // set the value of the target
-      setProperty(prop);
+  /**
+   * Returns PropertyDefinition or PropertyAccessor to read chain segment
+   * from source or null if it can't be resolved.
+   */
+  private Object resolveKey(Object source, int index) {
+    Object propKey = propChain[index];
+    String propName = propNames[index];
+    if (source instanceof UxmlElement) {
+      if ((propKey instanceof PropertyDefinition) || (propName == null)) {
+        return propKey;
+      }
+      PropertyDefinition propDef = PropertyCache.getPropertyDefinition(
+          ((UxmlElement) source).getClass(), propName);
+      if (propDef != null) {
+        propChain[index] = propDef;
+      }
+      return propDef;
+    }
+    if (propKey instanceof PropertyAccessor) {
+      // Accessors that were not resolved by name apply to any source.
+      Class<?> ownerClass = accessorClasses[index];
+      if ((ownerClass == null) || (ownerClass == source.getClass())) {
+        return propKey;
+      }
+    }
+    if ((propName == null) || (source == null)) {
+      return null;
     }
+    PropertyAccessor accessor = Application.getCurrent().getPropertyAccessor(
+        source.getClass(), propName);
+    propChain[index] = accessor;
+    accessorClasses[index] = source.getClass();
+    return accessor;
   }
 
   /**
    * Clear all bindings and remove all property change event listeners.
    */
   public void clear() {
+    unbind(0);
+    cancelPendingUpdate();
     targetObject = null;
     targetProperty = null;
-    sourceChain = null;
     propChain = null;
-    unbind(0);
   }
 
   /**
@@ -149,18 +253,12 @@ public class PropertyBinding {
    */
   private void unbind(int index) {
     // remove event listeners from sources starting from this index
-    for (int i = index; i < sourceChain.size(); i++) {
-      Object source = sourceChain.get(i);
-      String propName = (String) propChain[i];
-
-      if (!(source instanceof EventNotifier)) {
-        continue;
+    for (int i = index; i < sourceCount; i++) {
+      if (listenKeys[i] != null) {
+        ((EventNotifier) sources[i]).removeListener(listenKeys[i], listener);
+        listenKeys[i] = null;
       }
-
-      EventNotifier notifier = (EventNotifier) source;
-
-      notifier.removeListener(propName, listener);
-      listener = null;
+      sources[i] = null;
 
       // TODO(ferhat) implement unbind for Model
       // if (source is Model) {
@@ -168,7 +266,9 @@ public class PropertyBinding {
       // }
     }
     // remove all objects starting from this source
-    sourceChain.remove(index);
+    if (index < sourceCount) {
+      sourceCount = index;
+    }
   }
 
   /**
@@ -177,27 +277,150 @@ public class PropertyBinding {
    */
   private void onPropChange(PropertyChangedEvent event) {
     // find the source object in sourceChain that fired this event
-    int index = sourceChain.indexOf(event.getSource());
-    if (index < 0 || index >= sourceChain.size()) {
+    Object source = event.getSource();
+    PropertyDefinition property = event.getProperty();
+    int index = -1;
+    for (int i = 0; i < sourceCount; i++) {
+      if (sources[i] == source && listenKeys[i] == property) {
+        index = i;
+        break;
+      }
+    }
+    if (index == -1) {
       // this should never happen
       logger.log(Level.WARNING, ERROR_MSG_NO_MATCHING_TARGET);
       return;
     }
 
-    // check if this property exists in our property chain
-    if (!propChain[index].equals(event.getProperty())) {
-        return; // this should never happen
-    }
-
     // if this is the last prop in the chain, just update its value
-    if (index == (sourceChain.size() - 1)) {
-      setProperty(event.getNewValue());
+    if (index == (propChain.length - 1)) {
+      updateTarget(event.getNewValue());
     } else {
       // all objects underneath this source are dirty, unbind them
       unbind(index);
 
       // now re-bind to all new objects starting from this source
-      bind(event.getSource(), index);
+      bind(source, index);
+    }
+  }
+
+  /**
+   * Sets target property or queues the update if binding is deferred.
+   */
+  private void updateTarget(Object value) {
+    if (!deferred) {
+      setProperty(value);
+      return;
+    }
+    // Later changes in the same frame replace the queued value.
+    pendingValue = value;
+    if (!updatePending) {
+      updatePending = true;
+      UpdateQueue.updateBinding(this);
+    }
+  }
+
+  /**
+   * Sets target property to queued value.
+   */
+  void applyPendingUpdate() {
+    if (!updatePending) {
+      return;
+    }
+    Object value = pendingValue;
+    cancelPendingUpdate();
+    if (targetObject != null) {
+      setProperty(value);
+    }
+  }
+
+  /**
+   * Drops queued value.
+   */
+  void cancelPendingUpdate() {
+    updatePending = false;
+    pendingValue = null;
+  }
+
+  /**
+   * Applies queued updates of bindings. Bindings are updated after the
+   * queued bindings that target their sources so chained bindings don't
+   * observe intermediate values. Bindings in a cycle are updated in queue
+   * order.
+   */
+  static void applyPendingUpdates(List<PropertyBinding> bindings) {
+    int count = bindings.size();
+    if (count == 1) {
+      bindings.get(0).applyPendingUpdate();
+      return;
+    }
+    Map<Object, List<PropertyBinding>> bindingsByTarget =
+        new IdentityHashMap<Object, List<PropertyBinding>>();
+    for (int i = 0; i < count; i++) {
+      PropertyBinding binding = bindings.get(i);
+      binding.pendingDependencies = 0;
+      binding.dependents = null;
+      if (binding.targetObject == null) {
+        continue;
+      }
+      List<PropertyBinding> targetBindings = bindingsByTarget.get(binding.targetObject);
+      if (targetBindings == null) {
+        targetBindings = new ArrayList<PropertyBinding>();
+        bindingsByTarget.put(binding.targetObject, targetBindings);
+      }
+      targetBindings.add(binding);
+    }
+
+    // A binding depends on the queued bindings that write a property it
+    // listens to.
+    for (int i = 0; i < count; i++) {
+      PropertyBinding binding = bindings.get(i);
+      for (int s = 0; s < binding.sourceCount; s++) {
+        if (binding.listenKeys[s] == null) {
+          continue;
+        }
+        List<PropertyBinding> writers = bindingsByTarget.get(binding.sources[s]);
+        if (writers == null) {
+          continue;
+        }
+        for (int w = 0; w < writers.size(); w++) {
+          PropertyBinding writer = writers.get(w);
+          if (writer != binding && writer.targetProperty == binding.listenKeys[s]) {
+            if (writer.dependents == null) {
+              writer.dependents = new ArrayList<PropertyBinding>();
+            }
+            writer.dependents.add(binding);
+            ++binding.pendingDependencies;
+          }
+        }
+      }
+    }
+
+    List<PropertyBinding> ready = new ArrayList<PropertyBinding>(count);
+    for (int i = 0; i < count; i++) {
+      PropertyBinding binding = bindings.get(i);
+      if (binding.pendingDependencies == 0) {
+        ready.add(binding);
+      }
+    }
+    for (int i = 0; i < ready.size(); i++) {
+      PropertyBinding binding = ready.get(i);
+      binding.applyPendingUpdate();
+      if (binding.dependents != null) {
+        for (int d = 0; d < binding.dependents.size(); d++) {
+          PropertyBinding dependent = binding.dependents.get(d);
+          if (--dependent.pendingDependencies == 0) {
+            ready.add(dependent);
+          }
+        }
+        binding.dependents = null;
+      }
+    }
+    // Remaining bindings are part of a cycle.
+    for (int i = 0; i < count; i++) {
+      PropertyBinding binding = bindings.get(i);
+      binding.dependents = null;
+      binding.applyPendingUpdate();
     }
   }
 
@@ -229,23 +452,17 @@ public class PropertyBinding {
   /**
    * Gets the property on a source object.
    */
-  private Object getProperty(Object source, Object propName) {
+  private Object getProperty(Object source, Object propKey) {
     // if source is Element, use propDefs to access the property
-    if (source instanceof UxmlElement) {
-      // check if propName is PropertyDefinition
-      PropertyDefinition propDef = (PropertyDefinition) propName;
-
-      if (propDef != null) {
-        return ((UxmlElement) source).getProperty(propDef);
-      } else {
-      return null;
-    }
+    if (propKey instanceof PropertyDefinition) {
+      return ((UxmlElement) source).getProperty((PropertyDefinition) propKey);
     // TODO(ferhat):Model
     //} else if (source is Model) {
     //  return Model(source).getProperty(propName as String);
-    } else {
-      return Application.getCurrent().readDynamicValue(source, (String) propName);
+    } else if (propKey instanceof PropertyAccessor) {
+      return ((PropertyAccessor) propKey).getValue(source);
     }
+    return null;
   }
 
   /** Sets the property on the target object to the specified value. */
@@ -273,8 +490,12 @@ public class PropertyBinding {
       //      Model(targetObject).setProperty(targetProp as String, value);
       //    else
       //      Model(targetObject).setItemAt(index, value);
-    } else {
-      Application.getCurrent().writeDynamicValue(targetObject, (String) targetProperty, value);
+    } else if (targetObject != null) {
+      if (targetProperty instanceof String) {
+        targetProperty = Application.getCurrent().getPropertyAccessor(targetObject.getClass(),
+            (String) targetProperty);
+      }
+      ((PropertyAccessor) targetProperty).setValue(targetObject, value);
     }
   }
 
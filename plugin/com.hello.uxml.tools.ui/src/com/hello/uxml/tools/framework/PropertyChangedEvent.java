@@ -5,6 +5,10 @@ import com.hello.uxml.tools.framework.events.EventArgs;
 /**
  * Encapsulates property change details for listeners.
  *
+ * <p>Events dispatched by {@link UxmlElement#setProperty} are reused once
+ * the dispatch returns. Listeners that need the values later should copy
+ * them instead of holding on to the event.
+ *
  * @author ferhat
  */
 public class PropertyChangedEvent extends EventArgs {
@@ -16,6 +20,13 @@ public class PropertyChangedEvent extends EventArgs {
   private Object oldValue;
   private Object newValue;
 
+  /** Recycled events of each thread indexed by dispatch nesting depth. */
+  private static final ThreadLocal<EventPool> pools = new ThreadLocal<EventPool>() {
+    @Override protected EventPool initialValue() {
+      return new EventPool();
+    }
+  };
+
   /**
    * Constructs <code>PropertyChangeEvent</code> object
    * @param source Source of property change event
@@ -51,4 +62,51 @@ public class PropertyChangedEvent extends EventArgs {
   public Object getNewValue() {
     return newValue;
   }
+
+  /**
+   * Returns a recycled event initialized with change details. Events must be
+   * released with {@link #recycle} in reverse order of obtain so nested
+   * property changes get distinct events.
+   */
+  static PropertyChangedEvent obtain(Object source, PropertyDefinition propDef, Object oldValue,
+      Object newValue) {
+    EventPool pool = pools.get();
+    if (pool.depth == pool.events.length) {
+      PropertyChangedEvent[] events = new PropertyChangedEvent[pool.events.length * 2];
+      System.arraycopy(pool.events, 0, events, 0, pool.depth);
+      pool.events = events;
+    }
+    PropertyChangedEvent event = pool.events[pool.depth];
+    if (event == null) {
+      event = new PropertyChangedEvent(source, propDef, oldValue, newValue);
+      pool.events[pool.depth] = event;
+    } else {
+      event.source = source;
+      event.propDef = propDef;
+      event.oldValue = oldValue;
+      event.newValue = newValue;
+      event.handled = false;
+      event.eventDef = null;
+    }
+    ++pool.depth;
+    return event;
+  }
+
+  /**
+   * Returns event obtained last to the pool and drops its references.
+   */
+  void recycle() {
+    source = null;
+    oldValue = null;
+    newValue = null;
+    --pools.get().depth;
+  }
+
+  /**
+   * Stack of reusable events of a thread.
+   */
+  private static final class EventPool {
+    PropertyChangedEvent[] events = new PropertyChangedEvent[8];
+    int depth;
+  }
 }
@@ -1,6 +1,6 @@
 package com.hello.uxml.tools.framework;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Uniquely identifies a property and maps the owner type to PropertyData.
@@ -14,7 +14,22 @@ public class PropertyDefinition {
      * Maps an owner class to class specific PropertyData.
      */
 
-    private HashMap<Class <? extends UxmlElement>, PropertyData> dataMap;
+    private ConcurrentHashMap<Class <? extends UxmlElement>, PropertyData> dataMap;
+
+    /**
+     * Caches result of getPropData per queried class so elements don't walk
+     * their superclass chain on every property read. Misses are stored as
+     * NO_PROP_DATA. Safe for concurrent readers such as compiler workers.
+     * Replaced instead of cleared when propdata is added, so a lookup racing
+     * with addPropData can't store a stale result in the new cache.
+     */
+    private volatile ConcurrentHashMap<Class<?>, Object> resolvedDataMap =
+        new ConcurrentHashMap<Class<?>, Object>();
+
+    private static final Object NO_PROP_DATA = new Object();
+
+    /** Set if property data of any class inherits value from parents. */
+    private volatile boolean inherits;
 
     /**
      * Holds unique property id
@@ -39,8 +54,7 @@ public class PropertyDefinition {
       this.id = id;
       this.name = name;
       this.dataType = dataType;
-      this.dataMap = new HashMap<Class<? extends UxmlElement>, PropertyData>();
-      this.dataMap.put(ownerClass, null);
+      this.dataMap = new ConcurrentHashMap<Class<? extends UxmlElement>, PropertyData>();
     }
 
     /**
@@ -51,10 +65,11 @@ public class PropertyDefinition {
       this.id = id;
       this.name = name;
       this.dataType = dataType;
-      this.dataMap = new HashMap<Class<? extends UxmlElement>, PropertyData>();
+      this.dataMap = new ConcurrentHashMap<Class<? extends UxmlElement>, PropertyData>();
       this.dataMap.put(ownerClass, propData);
       this.defaultPropData = propData;
       propData.setOwner(ownerClass);
+      inherits = propData.getInherits();
     }
 
     /**
@@ -62,8 +77,18 @@ public class PropertyDefinition {
      *
      * @param ownerClass class that owns the property data override
      */
-    @SuppressWarnings("unchecked")  // unchecked, Loop terminates at Element superClass
     public PropertyData getPropData(Class<? extends UxmlElement> ownerClass) {
+      ConcurrentHashMap<Class<?>, Object> resolved = resolvedDataMap;
+      Object data = resolved.get(ownerClass);
+      if (data == null) {
+        data = findPropData(ownerClass);
+        resolved.put(ownerClass, (data == null) ? NO_PROP_DATA : data);
+      }
+      return (data == NO_PROP_DATA) ? null : (PropertyData) data;
+    }
+
+    @SuppressWarnings("unchecked")  // unchecked, Loop terminates at Element superClass
+    private PropertyData findPropData(Class<? extends UxmlElement> ownerClass) {
       do {
         PropertyData d = dataMap.get(ownerClass);
         if (d != null) {
@@ -75,6 +100,13 @@ public class PropertyDefinition {
     }
 
 
+    /**
+     * Returns true if property inherits value from parents for any class.
+     */
+    boolean getInherits() {
+      return inherits;
+    }
+
     /**
      * Returns default property data.
      */
@@ -90,8 +122,13 @@ public class PropertyDefinition {
      */
     public PropertyDefinition addPropData(Class<? extends UxmlElement> ownerClass,
         PropertyData propdata) {
-      dataMap.put(ownerClass, propdata);
       propdata.setOwner(ownerClass);
+      dataMap.put(ownerClass, propdata);
+      if (propdata.getInherits()) {
+        inherits = true;
+      }
+      resolvedDataMap = new ConcurrentHashMap<Class<?>, Object>();
+      PropertySystem.propDataAdded(this, ownerClass);
       return this;
     }
 
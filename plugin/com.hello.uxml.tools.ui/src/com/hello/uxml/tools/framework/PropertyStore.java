@@ -0,0 +1,205 @@
+package com.hello.uxml.tools.framework;
+
+import java.util.Arrays;
+
+/**
+ * Holds explicitly set property values of an element keyed by
+ * PropertyDefinition id.
+ *
+ * <p>Values are stored in an open addressed table with linear probing. Keys
+ * are kept in an int array so lookups don't allocate or box and typical
+ * elements with a handful of properties fit in a few cache lines.
+ *
+ * <p>Double values set through putDouble/setDoubleAt are kept unboxed in a
+ * parallel double array that is allocated on first use. Their object slot
+ * holds a marker, valueAt boxes them on read.
+ *
+ * @author ferhat
+ */
+final class PropertyStore {
+
+  /** Key of unused slots. Property ids start at 0. */
+  private static final int EMPTY = -1;
+
+  private static final int INITIAL_CAPACITY = 8;
+
+  /** Marks slots whose value is stored in doubles. */
+  private static final Object DOUBLE_SLOT = new Object();
+
+  private int[] keys;
+  private Object[] values;
+  private double[] doubles;
+  private int size;
+
+  /**
+   * Creates empty store.
+   */
+  PropertyStore() {
+    keys = new int[INITIAL_CAPACITY];
+    Arrays.fill(keys, EMPTY);
+    values = new Object[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Returns slot index of property id or -1 if value is not set.
+   */
+  int indexOf(int id) {
+    int mask = keys.length - 1;
+    int index = hash(id) & mask;
+    int key;
+    while ((key = keys[index]) != EMPTY) {
+      if (key == id) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns value stored at slot index.
+   */
+  Object valueAt(int index) {
+    Object value = values[index];
+    return (value == DOUBLE_SLOT) ? Double.valueOf(doubles[index]) : value;
+  }
+
+  /**
+   * Returns true if slot index holds an unboxed double.
+   */
+  boolean isDoubleAt(int index) {
+    return values[index] == DOUBLE_SLOT;
+  }
+
+  /**
+   * Returns unboxed double stored at slot index. Check isDoubleAt first.
+   */
+  double doubleAt(int index) {
+    return doubles[index];
+  }
+
+  /**
+   * Replaces value stored at slot index with an unboxed double.
+   */
+  void setDoubleAt(int index, double value) {
+    if (doubles == null) {
+      doubles = new double[keys.length];
+    }
+    values[index] = DOUBLE_SLOT;
+    doubles[index] = value;
+  }
+
+  /**
+   * Replaces value stored at slot index.
+   */
+  void setValueAt(int index, Object value) {
+    values[index] = value;
+  }
+
+  /**
+   * Sets value of property id.
+   */
+  void put(int id, Object value) {
+    // Insert first, it may replace values array.
+    int index = insert(id);
+    values[index] = value;
+  }
+
+  /**
+   * Sets value of property id to an unboxed double.
+   */
+  void putDouble(int id, double value) {
+    setDoubleAt(insert(id), value);
+  }
+
+  /**
+   * Returns slot index of property id, adding the key if it is not set.
+   */
+  private int insert(int id) {
+    int mask = keys.length - 1;
+    int index = hash(id) & mask;
+    int key;
+    while ((key = keys[index]) != EMPTY) {
+      if (key == id) {
+        return index;
+      }
+      index = (index + 1) & mask;
+    }
+    // Keep load factor at or below 3/4 so probe sequences stay short.
+    if ((size + 1) * 4 > keys.length * 3) {
+      grow();
+      return insert(id);
+    }
+    keys[index] = id;
+    ++size;
+    return index;
+  }
+
+  /**
+   * Removes value of property id.
+   *
+   * @return true if a value was removed.
+   */
+  boolean remove(int id) {
+    int index = indexOf(id);
+    if (index == -1) {
+      return false;
+    }
+    // Shift following entries of the probe sequence back so lookups don't
+    // need tombstones.
+    int mask = keys.length - 1;
+    int next = (index + 1) & mask;
+    while (keys[next] != EMPTY) {
+      int home = hash(keys[next]) & mask;
+      // Move entry if its home slot is not cyclically in (index, next].
+      if (((next - home) & mask) >= ((next - index) & mask)) {
+        keys[index] = keys[next];
+        values[index] = values[next];
+        if (doubles != null) {
+          doubles[index] = doubles[next];
+        }
+        index = next;
+      }
+      next = (next + 1) & mask;
+    }
+    keys[index] = EMPTY;
+    values[index] = null;
+    --size;
+    return true;
+  }
+
+  /**
+   * Returns number of values stored.
+   */
+  int size() {
+    return size;
+  }
+
+  private void grow() {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    double[] oldDoubles = doubles;
+    keys = new int[oldKeys.length * 2];
+    Arrays.fill(keys, EMPTY);
+    values = new Object[oldKeys.length * 2];
+    doubles = (oldDoubles == null) ? null : new double[oldKeys.length * 2];
+    size = 0;
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldKeys[i] != EMPTY) {
+        int index = insert(oldKeys[i]);
+        values[index] = oldValues[i];
+        if (oldDoubles != null) {
+          doubles[index] = oldDoubles[i];
+        }
+      }
+    }
+  }
+
+  /**
+   * Spreads sequential property ids across the table.
+   */
+  private static int hash(int id) {
+    int h = id * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+}
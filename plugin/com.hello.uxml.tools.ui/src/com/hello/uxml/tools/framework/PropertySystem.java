@@ -1,7 +1,15 @@
 package com.hello.uxml.tools.framework;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Stores framework wide PropertyDefinition objects.
@@ -9,6 +17,15 @@ import java.util.List;
  * for authoring tools to access properties registered for
  * Element subclasses.
  *
+ * <p>Properties are indexed by the classes they have propdata for when they
+ * are registered. Queries for a class combine the entries of the class and
+ * its superclasses once and cache the result, so they don't scan every
+ * registered property.
+ *
+ * <p>Properties are registered from static initializers that may run on
+ * any thread. Reads don't lock, registration and propdata changes invalidate
+ * the per class snapshots.
+ *
  * @author ferhat
  *
  */
@@ -16,15 +33,37 @@ public class PropertySystem {
   private PropertySystem() {
   }
   /**
-   * Holds all PropertyDefinition objects hashed on property name.
+   * Maps a class to properties that have propdata registered for it.
    */
-  private static ArrayList<PropertyDefinition> properties = new ArrayList<PropertyDefinition>();
+  private static ConcurrentHashMap<Class<?>, CopyOnWriteArrayList<PropertyDefinition>>
+      ownProperties = new ConcurrentHashMap<Class<?>, CopyOnWriteArrayList<PropertyDefinition>>();
 
   /**
    * Holds unique id counter for PropertyDefinition.
    * This is used as hashCode for key, value map in Element
    */
-  private static int uniqueIdCounter = 0;
+  private static AtomicInteger uniqueIdCounter = new AtomicInteger();
+
+  /**
+   * Incremented when a property is registered, unregistered or gets new
+   * propdata. Snapshots of older versions are rebuilt on access.
+   */
+  private static AtomicInteger version = new AtomicInteger();
+
+  /**
+   * Caches immutable property list and name table of each queried class.
+   */
+  private static ConcurrentHashMap<Class<?>, ClassSnapshot> classSnapshots =
+      new ConcurrentHashMap<Class<?>, ClassSnapshot>();
+
+  /** Orders properties by registration. */
+  private static final Comparator<PropertyDefinition> ID_ORDER =
+      new Comparator<PropertyDefinition>() {
+        @Override
+        public int compare(PropertyDefinition a, PropertyDefinition b) {
+          return (a.getId() < b.getId()) ? -1 : ((a.getId() == b.getId()) ? 0 : 1);
+        }
+      };
 
   /**
    * Registers a new PropertyDefinition
@@ -38,15 +77,15 @@ public class PropertySystem {
       Class<?> dataType,
       Class<? extends UxmlElement> ownerClass,
       PropertyData propData) {
-    int id = uniqueIdCounter++;
+    int id = uniqueIdCounter.getAndIncrement();
     PropertyDefinition propDef = new PropertyDefinition(id, propertyName, dataType, ownerClass,
         propData);
-    properties.add(propDef);
     if ((propData != null) && propData.getAttached()) {
       // If property is attached, we should enable lookup on base uielement class.
       propDef.addPropData(UIElement.class, new PropertyData(propData.getDefaultValue(),
           propData.getFlags(), propData.propChangeListener));
     }
+    propDataAdded(propDef, ownerClass);
     return propDef;
   }
 
@@ -62,23 +101,107 @@ public class PropertySystem {
    * Unregisters a property definition
    */
   public static void unregister(PropertyDefinition propDef) {
-    properties.remove(propDef);
+    for (List<PropertyDefinition> classProperties : ownProperties.values()) {
+      classProperties.remove(propDef);
+    }
+    version.incrementAndGet();
+  }
+
+  /**
+   * Indexes property under a class it has propdata for.
+   */
+  static void propDataAdded(PropertyDefinition propDef, Class<?> ownerClass) {
+    CopyOnWriteArrayList<PropertyDefinition> classProperties = ownProperties.get(ownerClass);
+    if (classProperties == null) {
+      classProperties = new CopyOnWriteArrayList<PropertyDefinition>();
+      CopyOnWriteArrayList<PropertyDefinition> existing = ownProperties.putIfAbsent(ownerClass,
+          classProperties);
+      if (existing != null) {
+        classProperties = existing;
+      }
+    }
+    classProperties.addIfAbsent(propDef);
+    version.incrementAndGet();
   }
 
   /**
    * Get all the property definitions for a class.
+   *
+   * <p>Returns an immutable snapshot in registration order that is shared by
+   * callers.
    */
   public static List<PropertyDefinition> getPropertyDefinitions(
       Class<? extends UxmlElement>ownerClass) {
+    return getSnapshot(ownerClass).properties;
+  }
+
+  /**
+   * Returns property definition of a class by name or null if not found.
+   * Name comparison ignores case.
+   */
+  public static PropertyDefinition getPropertyDefinition(
+      Class<? extends UxmlElement> ownerClass, String propertyName) {
+    ClassSnapshot snapshot = getSnapshot(ownerClass);
+    PropertyDefinition propDef = snapshot.propertyNames.get(propertyName);
+    return (propDef != null) ? propDef
+        : snapshot.propertyNames.get(propertyName.toLowerCase());
+  }
+
+  /**
+   * Drops cached snapshot of a class.
+   */
+  static void clearCache(Class<? extends UxmlElement> ownerClass) {
+    classSnapshots.remove(ownerClass);
+  }
+
+  private static ClassSnapshot getSnapshot(Class<? extends UxmlElement> ownerClass) {
+    ClassSnapshot snapshot = classSnapshots.get(ownerClass);
+    if ((snapshot != null) && (snapshot.version == version.get())) {
+      return snapshot;
+    }
     Application.getCurrent().verifyClassLoaded(ownerClass);
 
-    // Create list of properties. ! not using Lists.newArrayList on purpose
+    // Read version before collecting so a concurrent registration leaves the
+    // snapshot stale instead of silently incomplete.
+    int currentVersion = version.get();
+
+    // A property may have propdata for a class and its superclass.
+    Map<PropertyDefinition, Boolean> found = new IdentityHashMap<PropertyDefinition, Boolean>();
     ArrayList<PropertyDefinition> list = new ArrayList<PropertyDefinition>();
-    for (PropertyDefinition propDef : properties) {
-      if (propDef.getPropData(ownerClass) != null) {
-        list.add(propDef);
+    for (Class<?> cls = ownerClass; cls != null; cls = cls.getSuperclass()) {
+      List<PropertyDefinition> classProperties = ownProperties.get(cls);
+      if (classProperties == null) {
+        continue;
+      }
+      for (PropertyDefinition propDef : classProperties) {
+        if (found.put(propDef, Boolean.TRUE) == null) {
+          list.add(propDef);
+        }
+      }
+    }
+    Collections.sort(list, ID_ORDER);
+    snapshot = new ClassSnapshot(currentVersion, Collections.unmodifiableList(list));
+    classSnapshots.put(ownerClass, snapshot);
+    return snapshot;
+  }
+
+  /**
+   * Holds property list and lower case name table of a class at a registry
+   * version. Immutable after construction.
+   */
+  private static class ClassSnapshot {
+    final int version;
+    final List<PropertyDefinition> properties;
+    final Map<String, PropertyDefinition> propertyNames;
+
+    ClassSnapshot(int version, List<PropertyDefinition> properties) {
+      this.version = version;
+      this.properties = properties;
+      propertyNames = new HashMap<String, PropertyDefinition>(properties.size() * 2);
+      // Later registrations win on name conflicts.
+      for (PropertyDefinition propDef : properties) {
+        propertyNames.put(propDef.getName().toLowerCase(), propDef);
       }
     }
-    return list;
   }
 }
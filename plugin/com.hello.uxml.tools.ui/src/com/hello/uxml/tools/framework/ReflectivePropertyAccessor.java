@@ -0,0 +1,131 @@
+package com.hello.uxml.tools.framework;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Implements a PropertyAccessor for platforms that support reflection.
+ *
+ * <p>The getter, setter or field for the key is looked up once when
+ * the accessor is created, so reading a value is a single reflective call.
+ * Keys of Map objects are read and written as map entries.
+ *
+ * @author ferhat
+ */
+public class ReflectivePropertyAccessor implements PropertyAccessor {
+
+  private static final Logger logger = Logger.getLogger(
+      ReflectivePropertyAccessor.class.getName());
+
+  private final String keyName;
+  private final boolean isMap;
+  private Method getter;
+  private Method setter;
+  private Field field;
+
+  /**
+   * Constructor.
+   */
+  public ReflectivePropertyAccessor(Class<?> ownerClass, String keyName) {
+    this.keyName = keyName;
+    isMap = Map.class.isAssignableFrom(ownerClass);
+    if (isMap || keyName.length() == 0) {
+      return;
+    }
+    String suffix = Character.toUpperCase(keyName.charAt(0)) + keyName.substring(1);
+    for (Method method : ownerClass.getMethods()) {
+      if (Modifier.isStatic(method.getModifiers())) {
+        continue;
+      }
+      String name = method.getName();
+      int paramCount = method.getParameterTypes().length;
+      if ((paramCount == 0) && (method.getReturnType() != void.class)) {
+        if (name.equals("get" + suffix) || ((getter == null) && name.equals("is" + suffix))) {
+          getter = makeAccessible(method);
+        }
+      } else if ((paramCount == 1) && (setter == null) && name.equals("set" + suffix)) {
+        setter = makeAccessible(method);
+      }
+    }
+    if ((getter == null) || (setter == null)) {
+      field = findField(ownerClass, keyName);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Object getValue(Object source) {
+    if (isMap) {
+      return ((Map<String, Object>) source).get(keyName);
+    }
+    try {
+      if (getter != null) {
+        return getter.invoke(source);
+      }
+      if (field != null) {
+        return field.get(source);
+      }
+    } catch (IllegalAccessException e) {
+      logger.log(Level.WARNING, "Can't read " + keyName, e);
+    } catch (InvocationTargetException e) {
+      logger.log(Level.WARNING, "Can't read " + keyName, e.getCause());
+    }
+    return null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void setValue(Object target, Object value) {
+    if (isMap) {
+      ((Map<String, Object>) target).put(keyName, value);
+      return;
+    }
+    try {
+      if (setter != null) {
+        setter.invoke(target, value);
+      } else if ((field != null) && !Modifier.isFinal(field.getModifiers())) {
+        field.set(target, value);
+      }
+    } catch (IllegalAccessException e) {
+      logger.log(Level.WARNING, "Can't write " + keyName, e);
+    } catch (IllegalArgumentException e) {
+      logger.log(Level.WARNING, "Can't write " + keyName, e);
+    } catch (InvocationTargetException e) {
+      logger.log(Level.WARNING, "Can't write " + keyName, e.getCause());
+    }
+  }
+
+  /**
+   * Returns instance field declared by class or its superclasses.
+   */
+  private static Field findField(Class<?> ownerClass, String keyName) {
+    for (Class<?> c = ownerClass; c != null; c = c.getSuperclass()) {
+      for (Field declaredField : c.getDeclaredFields()) {
+        if (declaredField.getName().equals(keyName)
+            && !Modifier.isStatic(declaredField.getModifiers())) {
+          return makeAccessible(declaredField);
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Allows access to non-public fields and public members of non-public
+   * classes.
+   */
+  private static <T extends AccessibleObject> T makeAccessible(T member) {
+    try {
+      member.setAccessible(true);
+    } catch (SecurityException e) {
+      // Access is checked when member is used.
+    }
+    return member;
+  }
+}
@@ -136,6 +136,27 @@ public class ScrollBox extends ContentContainer {
     }
   }
 
+  /**
+   * Returns vertical offset of a descendant from top of scrolled content.
+   */
+  double getContentOffsetY(UIElement descendant) {
+    double offset = 0;
+    UIElement element = descendant;
+    while ((element != null) && (element != cachedContentControl) && (element != this)) {
+      offset += element.getLayoutRect().y;
+      element = element.getParent();
+    }
+    return offset;
+  }
+
+  /**
+   * Returns height of visible area of content.
+   */
+  double getViewportHeight() {
+    return (contentPart != null) ? contentPart.getLayoutRect().height
+        : getLayoutRect().height;
+  }
+
   private void scrollPointChanged() {
     if (cachedContentControl != null) {
       Canvas.setChildLeft(cachedContentControl, -getScrollPointX());
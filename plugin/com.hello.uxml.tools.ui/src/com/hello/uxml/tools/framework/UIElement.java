@@ -17,6 +17,7 @@ import com.hello.uxml.tools.framework.graphics.UISurfaceTarget;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implements a UI element.
@@ -74,6 +75,12 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
   /** Element resources */
   private Resources resources;
 
+  /** Update queues holding element. Managed by UpdateQueue. */
+  int queueFlags;
+
+  /** Tree depth of element when update queue was last sorted. */
+  int queueDepth;
+
   /** Holds layout state */
   private int layoutFlags = UPDATEFLAG_SIZE_DIRTY | UPDATEFLAG_NEEDS_REDRAW |
       UPDATEFLAG_NEEDS_INITLAYOUT;
@@ -157,6 +164,18 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
           }
         }}));
 
+  /** CacheAsBitmap Property Definition */
+  public static PropertyDefinition cacheAsBitmapPropDef = PropertySystem.register(
+      "CacheAsBitmap", Boolean.class, UIElement.class,
+      new PropertyData(false, new PropertyChangeListener() {
+        @Override
+        public void propertyChanged(PropertyChangedEvent e) {
+          UISurface surface = ((UIElement) e.getSource()).hostSurface;
+          if (surface != null) {
+            surface.setCacheAsBitmap(((Boolean) e.getNewValue()).booleanValue());
+          }
+        }}));
+
   /** BlendMode Property Definition */
   public static PropertyDefinition blendModePropDef = PropertySystem.register("BlendMode",
       BlendMode.class, UIElement.class,
@@ -492,7 +511,7 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
   * Sets/returns visible property.
   */
   public void setVisible(boolean value) {
-    setProperty(visiblePropDef, value);
+    setBooleanProperty(visiblePropDef, value);
   }
 
   public boolean getVisible() {
@@ -503,7 +522,7 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
    * Sets/returns if mouse events are handled by element.
    */
    public void setMouseEnabled(boolean value) {
-     setProperty(mouseEnabledPropDef, value);
+     setBooleanProperty(mouseEnabledPropDef, value);
    }
 
    public boolean getMouseEnabled() {
@@ -514,7 +533,7 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
     * Sets/returns if element is enabled for input.
     */
    public void setEnabled(boolean value) {
-     setProperty(enabledPropDef, value);
+     setBooleanProperty(enabledPropDef, value);
    }
 
    public boolean getEnabled() {
@@ -525,7 +544,7 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
    * Sets/returns layoutVisible property.
    */
    public void setLayoutVisible(boolean value) {
-     setProperty(layoutVisiblePropDef, value);
+     setBooleanProperty(layoutVisiblePropDef, value);
    }
 
    public boolean getLayoutVisible() {
@@ -536,11 +555,23 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
     * Sets/returns opacity.
     */
    public void setOpacity(double value) {
-     setProperty(opacityPropDef, value);
+     setDoubleProperty(opacityPropDef, value);
    }
 
    public double getOpacity() {
-     return ((Double) getProperty(opacityPropDef)).doubleValue();
+     return getDoubleProperty(opacityPropDef);
+   }
+
+   /**
+    * Sets/returns if element and children are rendered into a cached bitmap.
+    * Use for content that changes rarely.
+    */
+   public void setCacheAsBitmap(boolean value) {
+     setBooleanProperty(cacheAsBitmapPropDef, value);
+   }
+
+   public boolean getCacheAsBitmap() {
+     return getBooleanProperty(cacheAsBitmapPropDef);
    }
 
    /**
@@ -558,7 +589,7 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
    * Sets/returns width property.
    */
   public void setWidth(double value) {
-    setProperty(widthPropDef, value);
+    setDoubleProperty(widthPropDef, value);
   }
 
   public double getWidth() {
@@ -569,7 +600,7 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
    * Sets/returns height property.
    */
   public void setHeight(double value) {
-    setProperty(heightPropDef, value);
+    setDoubleProperty(heightPropDef, value);
   }
 
   public double getHeight() {
@@ -580,44 +611,44 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
    * Sets/returns minimum width property.
    */
   public void setMinWidth(double value) {
-    setProperty(minWidthPropDef, value);
+    setDoubleProperty(minWidthPropDef, value);
   }
 
   public double getMinWidth() {
-    return ((Double) getProperty(minWidthPropDef)).doubleValue();
+    return getDoubleProperty(minWidthPropDef);
   }
 
   /**
    * Sets/returns maximum width property.
    */
   public void setMaxWidth(double value) {
-    setProperty(maxWidthPropDef, value);
+    setDoubleProperty(maxWidthPropDef, value);
   }
 
   public double getMaxWidth() {
-    return ((Double) getProperty(maxWidthPropDef)).doubleValue();
+    return getDoubleProperty(maxWidthPropDef);
   }
 
   /**
    * Sets/returns minimum height property.
    */
   public void setMinHeight(double value) {
-    setProperty(minHeightPropDef, value);
+    setDoubleProperty(minHeightPropDef, value);
   }
 
   public double getMinHeight() {
-    return ((Double) getProperty(minHeightPropDef)).doubleValue();
+    return getDoubleProperty(minHeightPropDef);
   }
 
   /**
    * Sets/returns maximum height property.
    */
   public void setMaxHeight(double value) {
-    setProperty(maxHeightPropDef, value);
+    setDoubleProperty(maxHeightPropDef, value);
   }
 
   public double getMaxHeight() {
-    return ((Double) getProperty(maxHeightPropDef)).doubleValue();
+    return getDoubleProperty(maxHeightPropDef);
   }
 
   /**
@@ -737,7 +768,7 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
   }
 
   public boolean getIsFocused() {
-     return ((Boolean) getProperty(isFocusedPropDef)).booleanValue();
+     return getBooleanProperty(isFocusedPropDef);
   }
 
   /**
@@ -1064,6 +1095,9 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
     if (!getVisible()) {
       hostSurface.setVisible(false);
     }
+    if (getCacheAsBitmap()) {
+      hostSurface.setCacheAsBitmap(true);
+    }
     int childCount = getRawChildCount();
     for (int i = 0; i < childCount; ++i) {
       getRawChild(i).initSurface(hostSurface);
@@ -1129,7 +1163,7 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
       hostSurface.close();
       hostSurface = null;
     }
-    parent = null;
+    setParent(null);
   }
 
   /**
@@ -1157,11 +1191,19 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
     throw new IndexOutOfBoundsException();
   }
 
+  @Override
+  protected void invalidateChildInheritedValues(PropertyDefinition propDef) {
+    int childCount = getRawChildCount();
+    for (int i = 0; i < childCount; ++i) {
+      getRawChild(i).invalidateInheritedValues(propDef);
+    }
+  }
+
   /**
    * Adds a visible child.
    */
   protected void addRawChild(UIElement child) {
-    child.parent = this;
+    child.setParent(this);
     if ((child.hostSurface == null) && (this.hostSurface != null)) {
       child.initSurface(hostSurface);
     }
@@ -1196,6 +1238,22 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
     return null;
   }
 
+  /**
+   * Adds listener counts by event type of this element and its visible
+   * descendants to counts. Used to measure listener density of a UI tree.
+   *
+   * @return number of elements visited.
+   */
+  public int collectTreeListenerCounts(Map<Object, Integer> counts) {
+    collectListenerCounts(counts);
+    int elementCount = 1;
+    int rawChildCount = getRawChildCount();
+    for (int i = 0; i < rawChildCount; ++i) {
+      elementCount += getRawChild(i).collectTreeListenerCounts(counts);
+    }
+    return elementCount;
+  }
+
   @Override
   protected void onPropertyChanged(PropertyDefinition propDef, Object oldValue, Object newValue) {
     PropertyData propData = propDef.getPropData(this.getClass());
@@ -1251,6 +1309,14 @@ public class UIElement extends UxmlElement implements UISurfaceTarget {
     UpdateQueue.updateMeasure(this);
   }
 
+  /**
+   * Invalidates size of element without queueing it. Used by UpdateQueue
+   * when it remeasures the element itself.
+   */
+  void markSizeDirty() {
+    layoutFlags |= UPDATEFLAG_SIZE_DIRTY;
+  }
+
   /**
    * Invalidates drawing of element.
    */
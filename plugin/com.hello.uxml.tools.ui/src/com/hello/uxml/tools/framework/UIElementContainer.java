@@ -48,6 +48,22 @@ public class UIElementContainer extends Control {
     addRawChild(child);
   }
 
+  /**
+   * Inserts a child into container at index
+   */
+  public void insertChild(int index, UIElement child) {
+    if (childElements == null) {
+      childElements = new ArrayList<UIElement>();
+    }
+    childElements.add(index, child);
+    addRawChild(child);
+    int lastIndex = childElements.size() - 1;
+    if (index != lastIndex) {
+      // Surface was added on top, move it to the child's depth.
+      super.setChildDepth(child, lastIndex, index);
+    }
+  }
+
   /**
    * Removes child from container
    */
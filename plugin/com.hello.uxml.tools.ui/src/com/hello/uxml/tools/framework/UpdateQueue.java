@@ -3,9 +3,16 @@ package com.hello.uxml.tools.framework;
 import com.hello.uxml.tools.framework.events.EventArgs;
 import com.hello.uxml.tools.framework.events.EventHandler;
 import com.hello.uxml.tools.framework.events.EventNotifier;
+import com.hello.uxml.tools.framework.graphics.UISurface;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Manages system wide layout queuing, caches layout
@@ -40,13 +47,72 @@ public class UpdateQueue {
    */
   private static List<UIElement> renderUpdates = new ArrayList<UIElement>();
 
+  /**
+   * Queue being processed by flush. Swapped with the queue so elements
+   * queued while processing are kept for the next flush.
+   */
+  private static List<UIElement> processing = new ArrayList<UIElement>();
+
+  /** Queue membership flags of UIElement.queueFlags. */
+  private static final int QUEUED_MEASURE = 0x1;
+  private static final int QUEUED_LAYOUT = 0x2;
+  private static final int QUEUED_REDRAW = 0x4;
+
+  /** Orders elements by tree depth, parents first. */
+  private static final Comparator<UIElement> DEPTH_ORDER = new Comparator<UIElement>() {
+    @Override
+    public int compare(UIElement a, UIElement b) {
+      return a.queueDepth - b.queueDepth;
+    }
+  };
+
+  /** Work done by last flush. */
+  private static int measureCount;
+  private static int layoutCount;
+  private static int redrawCount;
+
+  /** Callbacks queued by doLater in execution order. */
   private static ArrayList<CallbackData> callbacks = new ArrayList<CallbackData>();
 
+  /** Maps key of queued callbacks to their callback data. */
+  private static Map<Object, CallbackData> callbackKeys = new HashMap<Object, CallbackData>();
+
+  /** Set to run callbacks queued by callbacks in the same flush. */
+  private static boolean runNestedCallbacks = true;
+
+  /** Maximum time in nanoseconds spent in callbacks per flush or 0. */
+  private static long callbackBudgetNanos;
+
+  /** Number of callbacks run by last flush. */
+  private static int callbackCount;
+
+  /**
+   * List of deferred property bindings with queued target updates.
+   */
+  private static List<PropertyBinding> bindingUpdates = new ArrayList<PropertyBinding>();
+
+  /**
+   * Bindings being updated by flush. Swapped with bindingUpdates so
+   * bindings queued while updating are processed in the next pass.
+   */
+  private static List<PropertyBinding> bindingBatch = new ArrayList<PropertyBinding>();
+
+  /** Maximum number of nested callback passes per flush. */
+  private static final int MAX_CALLBACK_PASSES = 16;
+
+  /** Maximum number of binding update passes per flush. */
+  private static final int MAX_BINDING_PASSES = 16;
+
+  private static final Logger logger = Logger.getLogger(UpdateQueue.class.getName());
+
   /**
    * Adds element to layout queue.
    */
   public static void updateLayout(UIElement element) {
-    layoutUpdates.add(element);
+    if ((element.queueFlags & QUEUED_LAYOUT) == 0) {
+      element.queueFlags |= QUEUED_LAYOUT;
+      layoutUpdates.add(element);
+    }
     isDirty = true;
   }
 
@@ -54,7 +120,10 @@ public class UpdateQueue {
    * Add element to measure queue.
    */
   public static void updateMeasure(UIElement element) {
-    measureUpdates.add(element);
+    if ((element.queueFlags & QUEUED_MEASURE) == 0) {
+      element.queueFlags |= QUEUED_MEASURE;
+      measureUpdates.add(element);
+    }
     isDirty = true;
   }
 
@@ -62,7 +131,18 @@ public class UpdateQueue {
    * Add element to render queue.
    */
   public static void updateDrawing(UIElement element) {
-    renderUpdates.add(element);
+    if ((element.queueFlags & QUEUED_REDRAW) == 0) {
+      element.queueFlags |= QUEUED_REDRAW;
+      renderUpdates.add(element);
+    }
+    isDirty = true;
+  }
+
+  /**
+   * Adds deferred property binding to binding update queue.
+   */
+  public static void updateBinding(PropertyBinding binding) {
+    bindingUpdates.add(binding);
     isDirty = true;
   }
 
@@ -76,55 +156,227 @@ public class UpdateQueue {
   /**
    * Adds a callback to execute before next layout cycle.
    * The callback is registered using a key to eliminate duplicate calls.
+   * If a callback with the same key is queued, it is replaced by callback
+   * and data but keeps its position. Null keys are not coalesced.
    */
   public static void doLater(EventHandler callback, Object key, Object data) {
-    callbacks.add(new CallbackData(callback, key, data));
+    if (key != null) {
+      CallbackData callData = callbackKeys.get(key);
+      if (callData != null) {
+        callData.handler = callback;
+        callData.data = data;
+        return;
+      }
+    }
+    CallbackData callData = new CallbackData(callback, key, data);
+    callbacks.add(callData);
+    if (key != null) {
+      callbackKeys.put(key, callData);
+    }
+    isDirty = true;
+  }
+
+  /**
+   * Sets whether callbacks queued by a callback during flush run in the
+   * same flush or in the next one. Defaults to same flush, limited to
+   * {@value #MAX_CALLBACK_PASSES} passes.
+   */
+  public static void setRunNestedCallbacks(boolean value) {
+    runNestedCallbacks = value;
+  }
+
+  /**
+   * Sets maximum time in milliseconds flush spends running callbacks. Once
+   * exceeded, remaining callbacks are run by the next flush. At least one
+   * callback runs per flush. 0 disables the limit.
+   */
+  public static void setCallbackBudget(double milliseconds) {
+    callbackBudgetNanos = (long) (milliseconds * 1000000);
+  }
+
+  /**
+   * Returns number of callbacks run by last flush.
+   */
+  public static int getCallbackCount() {
+    return callbackCount;
   }
 
   /**
    * Processes all updates.
    */
   public static void flush() {
-
-    for (int i = 0; i < callbacks.size(); i++) {
-      CallbackData callData = callbacks.get(i);
-      callData.getHandler().handleEvent((EventNotifier) callData.getSource(), callData);
-      callbacks.remove(i);
-      // TODO(ferhat): remove trace.
-      Application.getCurrent().trace("dolater executed");
-    }
+    flushCallbacks();
+    flushBindings();
 
     // First process measure queue so extra layout updates and redraw updates
-    // are queued for processing. Then flush layout queue.
-    int updateCount = measureUpdates.size();
-    UIElement element;
-
-    while (updateCount > 0) {
-      --updateCount;
-      element = measureUpdates.remove(0);
-      remeasure(element);
+    // are queued for processing. Then flush layout queue. Elements queued
+    // while a queue is processed are handled by the next flush.
+    List<UIElement> elements = measureUpdates;
+    measureUpdates = processing;
+    prepareQueue(elements, QUEUED_MEASURE);
+    int updateCount = elements.size();
+    for (int i = 0; i < updateCount; ++i) {
+      remeasure(elements.get(i));
     }
+    measureCount = updateCount;
+    elements.clear();
 
     // Relayout
-    updateCount = layoutUpdates.size();
-    while (updateCount > 0) {
-      --updateCount;
-      element = layoutUpdates.remove(0);
+    processing = layoutUpdates;
+    layoutUpdates = elements;
+    elements = processing;
+    prepareQueue(elements, QUEUED_LAYOUT);
+    updateCount = elements.size();
+    layoutCount = 0;
+    for (int i = 0; i < updateCount; ++i) {
+      UIElement element = elements.get(i);
       if (element.getVisible() || element.getLayoutVisible()) {
         element.relayout();
+        ++layoutCount;
       }
     }
+    elements.clear();
 
     // Final redraw surfaces that marked for redraw
-    updateCount = renderUpdates.size();
-    while (updateCount > 0) {
-      --updateCount;
-      element = renderUpdates.remove(0);
+    processing = renderUpdates;
+    renderUpdates = elements;
+    elements = processing;
+    prepareQueue(elements, QUEUED_REDRAW);
+    updateCount = elements.size();
+    redrawCount = 0;
+    for (int i = 0; i < updateCount; ++i) {
+      UIElement element = elements.get(i);
       if (element.getVisible()) {
         element.redraw();
+        ++redrawCount;
       }
     }
-    isDirty = false;
+    elements.clear();
+    // Elements and callbacks queued during flush or over budget wait for
+    // next flush, so ask the host for another frame to run it.
+    isDirty = !measureUpdates.isEmpty() || !layoutUpdates.isEmpty()
+        || !renderUpdates.isEmpty() || !callbacks.isEmpty() || !bindingUpdates.isEmpty();
+    if (isDirty) {
+      requestFrame();
+    }
+  }
+
+  /**
+   * Asks host to schedule another flush.
+   */
+  private static void requestFrame() {
+    Application app = Application.getCurrent();
+    if (app != null) {
+      app.requestFrame();
+    }
+  }
+
+  /**
+   * Clears queue membership flag of elements and sorts them so parents are
+   * processed before children.
+   */
+  private static void prepareQueue(List<UIElement> elements, int queueFlag) {
+    int count = elements.size();
+    for (int i = 0; i < count; ++i) {
+      UIElement element = elements.get(i);
+      element.queueFlags &= ~queueFlag;
+      int depth = 0;
+      for (UIElement parent = element.getParent(); parent != null;
+          parent = parent.getParent()) {
+        ++depth;
+      }
+      element.queueDepth = depth;
+    }
+    if (count > 1) {
+      Collections.sort(elements, DEPTH_ORDER);
+    }
+  }
+
+  /**
+   * Returns number of elements remeasured by last flush.
+   */
+  public static int getMeasureCount() {
+    return measureCount;
+  }
+
+  /**
+   * Returns number of elements relayed out by last flush.
+   */
+  public static int getLayoutCount() {
+    return layoutCount;
+  }
+
+  /**
+   * Returns number of elements redrawn by last flush.
+   */
+  public static int getRedrawCount() {
+    return redrawCount;
+  }
+
+  /**
+   * Runs queued callbacks in order.
+   */
+  private static void flushCallbacks() {
+    callbackCount = 0;
+    if (callbacks.isEmpty()) {
+      return;
+    }
+    long startTime = (callbackBudgetNanos != 0) ? System.nanoTime() : 0;
+    // Each pass runs callbacks queued before it started. Callbacks queued by
+    // the last pass, such as one that keeps queuing itself, wait for next
+    // flush.
+    int end = callbacks.size();
+    int pass = 1;
+    int index = 0;
+    try {
+      while (true) {
+        if (index == end) {
+          if (!runNestedCallbacks || (pass == MAX_CALLBACK_PASSES)
+              || (end == callbacks.size())) {
+            break;
+          }
+          end = callbacks.size();
+          ++pass;
+        }
+        if ((index != 0) && (callbackBudgetNanos != 0)
+            && ((System.nanoTime() - startTime) > callbackBudgetNanos)) {
+          break;
+        }
+        CallbackData callData = callbacks.get(index++);
+        Object key = callData.getSource();
+        if (key != null) {
+          // Callback may queue itself again while running.
+          callbackKeys.remove(key);
+        }
+        callData.getHandler().handleEvent(
+            (key instanceof EventNotifier) ? (EventNotifier) key : null, callData);
+      }
+    } finally {
+      // Remove callbacks that ran, including one that threw.
+      callbacks.subList(0, index).clear();
+      callbackCount = index;
+    }
+  }
+
+  /**
+   * Applies queued binding updates. Bindings queued by target updates are
+   * applied in following passes.
+   */
+  private static void flushBindings() {
+    int pass = 0;
+    while (!bindingUpdates.isEmpty()) {
+      if (pass == MAX_BINDING_PASSES) {
+        // Leave remaining updates for next flush.
+        logger.log(Level.WARNING, "Binding updates did not settle in " + pass + " passes.");
+        return;
+      }
+      ++pass;
+      List<PropertyBinding> batch = bindingUpdates;
+      bindingUpdates = bindingBatch;
+      bindingBatch = batch;
+      PropertyBinding.applyPendingUpdates(batch);
+      batch.clear();
+    }
   }
 
   private static void remeasure(UIElement element) {
@@ -141,6 +393,9 @@ public class UpdateQueue {
       // Parent size/layout may have changed so propagate updates up.
       UIElement parent = element.getParent();
       if (parent != null) {
+        // Parent measure is cached until its size is invalidated. Parent is
+        // remeasured here so it is not queued.
+        parent.markSizeDirty();
         remeasure(parent);
         parent.invalidateLayout();
       } else {
@@ -168,12 +423,23 @@ public class UpdateQueue {
    * Clears updateQueue when an application is launched.
    */
   public static void clear() {
-    measureUpdates.clear();
-    layoutUpdates.clear();
-    renderUpdates.clear();
+    clearQueue(measureUpdates);
+    clearQueue(layoutUpdates);
+    clearQueue(renderUpdates);
+    for (int i = 0; i < bindingUpdates.size(); i++) {
+      bindingUpdates.get(i).cancelPendingUpdate();
+    }
+    bindingUpdates.clear();
     isDirty = false;
   }
 
+  private static void clearQueue(List<UIElement> elements) {
+    for (int i = 0; i < elements.size(); ++i) {
+      elements.get(i).queueFlags = 0;
+    }
+    elements.clear();
+  }
+
   /**
    * Keeps track of callback data and handler for UpdateQueue.doLater impl.
    */
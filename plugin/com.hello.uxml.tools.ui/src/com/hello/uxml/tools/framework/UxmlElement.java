@@ -6,7 +6,6 @@ import com.hello.uxml.tools.framework.events.EventNotifier;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.EventListener;
-import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -30,9 +29,15 @@ public class UxmlElement extends EventNotifier {
       UxmlElement.class, new PropertyData(null, EnumSet.of(PropertyFlags.Inherit)));
 
   /**
-   * Holds the property values hashed by property definition
+   * Holds explicitly set property values keyed by property definition id.
    */
-  private HashMap<PropertyDefinition, Object> propMap = null;
+  private PropertyStore propStore = null;
+
+  /**
+   * Holds values of inherited properties resolved from ancestors keyed by
+   * property definition id. Entries are InheritedValue objects.
+   */
+  private PropertyStore inheritedValues = null;
 
   private List<PropertyBinding> bindings = null;
 
@@ -41,6 +46,13 @@ public class UxmlElement extends EventNotifier {
    */
   protected UxmlElement parent = null;
 
+  /**
+   * Set if element or a descendant may hold resolved inherited values.
+   * Ancestors of a marked element are marked so moving an unmarked subtree
+   * doesn't need to visit it.
+   */
+  private boolean subtreeHasInheritedValues;
+
   /**
    * Construct an Element instance
    */
@@ -52,7 +64,7 @@ public class UxmlElement extends EventNotifier {
    * Returns true if property value was explicitly set on this element.
    */
    public boolean overridesProperty(PropertyDefinition propDef) {
-     return (propMap != null) && propMap.containsKey(propDef);
+     return (propStore != null) && (propStore.indexOf(propDef.getId()) != -1);
    }
 
   /**
@@ -64,9 +76,13 @@ public class UxmlElement extends EventNotifier {
    */
   public Object getProperty(PropertyDefinition propDef) {
 
-    // Return value directly if explicitly set in property map
-    if ((propMap != null) && propMap.containsKey(propDef)) {
-      return propMap.get(propDef);
+    // Return value directly if explicitly set in property store
+    int id = propDef.getId();
+    if (propStore != null) {
+      int index = propStore.indexOf(id);
+      if (index != -1) {
+        return propStore.valueAt(index);
+      }
     }
 
     PropertyData propData = propDef.getPropData(this.getClass());
@@ -76,50 +92,124 @@ public class UxmlElement extends EventNotifier {
         return UxmlElement.UNDEFINED_VALUE;
       }
     }
-    if (propData.getInherits()) {
-      // Check if any parent element overrides this property explicitly
-      // If not use default value
-      UxmlElement parentElm = parent;
-      while (parentElm != null) {
-        HashMap<PropertyDefinition, Object> parentProperties = parentElm.propMap;
-        if ((parentProperties != null) && parentProperties.containsKey(propDef)) {
-          return parentProperties.get(propDef);
-        }
-        parentElm = parentElm.parent;
+    if (propData.getInherits() && (parent != null)) {
+      InheritedValue resolved = getInheritedValue(propDef);
+      if (resolved.explicit) {
+        return resolved.value;
       }
     }
     return propData.getDefaultValue();
   }
 
+  /**
+   * Returns value of propDef explicitly set on closest ancestor. Results are
+   * cached until the property changes on an ancestor or the element's
+   * subtree is moved, so repeated reads of inherited values don't walk the
+   * parent chain.
+   */
+  private InheritedValue getInheritedValue(PropertyDefinition propDef) {
+    int id = propDef.getId();
+    InheritedValue resolved = null;
+    if (inheritedValues != null) {
+      int index = inheritedValues.indexOf(id);
+      if (index != -1) {
+        return (InheritedValue) inheritedValues.valueAt(index);
+      }
+    }
+    resolved = new InheritedValue();
+    if (inheritedValues == null) {
+      inheritedValues = new PropertyStore();
+      for (UxmlElement element = this; (element != null) &&
+          !element.subtreeHasInheritedValues; element = element.parent) {
+        element.subtreeHasInheritedValues = true;
+      }
+    }
+    inheritedValues.put(id, resolved);
+
+    // Check if any parent element overrides this property explicitly. Stop
+    // at the first ancestor that has already resolved its inherited value.
+    UxmlElement parentElm = parent;
+    while (parentElm != null) {
+      PropertyStore parentProperties = parentElm.propStore;
+      if (parentProperties != null) {
+        int index = parentProperties.indexOf(id);
+        if (index != -1) {
+          resolved.explicit = true;
+          resolved.value = parentProperties.valueAt(index);
+          break;
+        }
+      }
+      PropertyStore parentInherited = parentElm.inheritedValues;
+      if (parentInherited != null) {
+        int index = parentInherited.indexOf(id);
+        if (index != -1) {
+          InheritedValue parentValue = (InheritedValue) parentInherited.valueAt(index);
+          resolved.explicit = parentValue.explicit;
+          resolved.value = parentValue.value;
+          break;
+        }
+      }
+      parentElm = parentElm.parent;
+    }
+    return resolved;
+  }
+
   /**
    * Sets property value for a given property definition.
    */
   public void setProperty(PropertyDefinition propDef, Object value) {
-    Object oldValue = getProperty(propDef);
-    if (propMap == null) {
-      propMap = new HashMap<PropertyDefinition, Object>();
+    // Replace explicit value in place, otherwise resolve old value before
+    // adding it.
+    int id = propDef.getId();
+    int index = (propStore == null) ? -1 : propStore.indexOf(id);
+    Object oldValue;
+    if (index != -1) {
+      oldValue = propStore.valueAt(index);
+      propStore.setValueAt(index, value);
+    } else {
+      oldValue = getProperty(propDef);
+      if (propStore == null) {
+        propStore = new PropertyStore();
+      }
+      propStore.put(id, value);
     }
-    propMap.put(propDef, value);
 
     // If value has changed call property change listeners registered on ownerclass.
     if ((oldValue != value) && ((oldValue == null) || (!oldValue.equals(value)))) {
-      // call property change to allow overrides derived classes
-      onPropertyChanged(propDef, oldValue, value);
-
-      // notify property change listeners
-      PropertyChangedEvent propChangedArgs = null;
-      if (hasListener(propDef)) {
-        if (propChangedArgs == null) {
-          propChangedArgs = new PropertyChangedEvent(this, propDef, oldValue, value);
-        }
-        notifyListeners(propDef, propChangedArgs);
+      if (propDef.getInherits()) {
+        invalidateDescendantInheritedValues(propDef);
       }
-      PropertyData propData = propDef.getPropData(this.getClass());
-      if ((propData != null) && (propData.propChangeListener != null)) {
-        if (propChangedArgs == null) {
-          propChangedArgs = new PropertyChangedEvent(this, propDef, oldValue, value);
+      dispatchPropertyChanged(propDef, oldValue, value);
+    }
+  }
+
+  /**
+   * Calls onPropertyChanged and property change listeners of a changed
+   * value.
+   */
+  private void dispatchPropertyChanged(PropertyDefinition propDef, Object oldValue,
+      Object value) {
+    // call property change to allow overrides derived classes
+    onPropertyChanged(propDef, oldValue, value);
+
+    // notify property change listeners. The event is recycled after
+    // dispatch so changes don't allocate.
+    boolean hasListener = hasListener(propDef);
+    PropertyData propData = propDef.getPropData(this.getClass());
+    boolean hasPropChangeListener = (propData != null)
+        && (propData.propChangeListener != null);
+    if (hasListener || hasPropChangeListener) {
+      PropertyChangedEvent propChangedArgs = PropertyChangedEvent.obtain(this, propDef,
+          oldValue, value);
+      try {
+        if (hasListener) {
+          notifyListeners(propDef, propChangedArgs);
         }
-        propData.propChangeListener.propertyChanged(propChangedArgs);
+        if (hasPropChangeListener) {
+          propData.propChangeListener.propertyChanged(propChangedArgs);
+        }
+      } finally {
+        propChangedArgs.recycle();
       }
     }
   }
@@ -128,12 +218,79 @@ public class UxmlElement extends EventNotifier {
    * Clears the property value.
    */
    public void clearProperty(PropertyDefinition propDef) {
-     if (propMap == null) {
+     if (propStore == null) {
        return;
      }
-     propMap.remove(propDef);
+     if (propStore.remove(propDef.getId()) && propDef.getInherits()) {
+       invalidateDescendantInheritedValues(propDef);
+     }
    }
 
+  /**
+   * Returns value of a Double property without a cast at the call site.
+   * Values set through setDoubleProperty are read without boxing.
+   */
+  public double getDoubleProperty(PropertyDefinition propDef) {
+    if (propStore != null) {
+      int index = propStore.indexOf(propDef.getId());
+      if ((index != -1) && propStore.isDoubleAt(index)) {
+        return propStore.doubleAt(index);
+      }
+    }
+    return ((Double) getProperty(propDef)).doubleValue();
+  }
+
+  /**
+   * Sets value of a Double property. The value is stored unboxed. Setting
+   * the value a property already holds doesn't notify listeners, changes
+   * box old and new values only for the change notification.
+   */
+  public void setDoubleProperty(PropertyDefinition propDef, double value) {
+    int id = propDef.getId();
+    int index = (propStore == null) ? -1 : propStore.indexOf(id);
+    Object oldValue;
+    if (index != -1) {
+      if (propStore.isDoubleAt(index)) {
+        double current = propStore.doubleAt(index);
+        if (Double.doubleToLongBits(current) == Double.doubleToLongBits(value)) {
+          return;
+        }
+        oldValue = Double.valueOf(current);
+      } else {
+        oldValue = propStore.valueAt(index);
+      }
+      propStore.setDoubleAt(index, value);
+    } else {
+      oldValue = getProperty(propDef);
+      if (propStore == null) {
+        propStore = new PropertyStore();
+      }
+      propStore.putDouble(id, value);
+    }
+
+    if (!(oldValue instanceof Double) || (Double.doubleToLongBits(
+        ((Double) oldValue).doubleValue()) != Double.doubleToLongBits(value))) {
+      if (propDef.getInherits()) {
+        invalidateDescendantInheritedValues(propDef);
+      }
+      dispatchPropertyChanged(propDef, oldValue, Double.valueOf(value));
+    }
+  }
+
+  /**
+   * Returns value of a Boolean property without a cast at the call site.
+   */
+  public boolean getBooleanProperty(PropertyDefinition propDef) {
+    return ((Boolean) getProperty(propDef)).booleanValue();
+  }
+
+  /**
+   * Sets value of a Boolean property using the shared Boolean instances.
+   */
+  public void setBooleanProperty(PropertyDefinition propDef, boolean value) {
+    setProperty(propDef, value ? Boolean.TRUE : Boolean.FALSE);
+  }
+
   /**
    * Overridable function that gets called when an element property changes.
    */
@@ -147,6 +304,50 @@ public class UxmlElement extends EventNotifier {
     return parent;
   }
 
+  /**
+   * Sets parent of element.
+   */
+  protected void setParent(UxmlElement value) {
+    if (parent != value) {
+      parent = value;
+      invalidateInheritedValues(null);
+    }
+  }
+
+  /**
+   * Drops inherited values of propDef resolved by descendants after it
+   * changed on this element.
+   */
+  private void invalidateDescendantInheritedValues(PropertyDefinition propDef) {
+    if (subtreeHasInheritedValues) {
+      invalidateChildInheritedValues(propDef);
+    }
+  }
+
+  /**
+   * Drops inherited value of propDef resolved by element and its
+   * descendants, or all inherited values if propDef is null.
+   */
+  final void invalidateInheritedValues(PropertyDefinition propDef) {
+    if (!subtreeHasInheritedValues) {
+      return;
+    }
+    if (propDef == null) {
+      subtreeHasInheritedValues = false;
+      inheritedValues = null;
+    } else if (inheritedValues != null) {
+      inheritedValues.remove(propDef.getId());
+    }
+    invalidateChildInheritedValues(propDef);
+  }
+
+  /**
+   * Calls invalidateInheritedValues on children. Subclasses with children,
+   * including children that are not exposed as raw children, override.
+   */
+  protected void invalidateChildInheritedValues(PropertyDefinition propDef) {
+  }
+
   /** Gets or sets the id of an element */
   public String getId() {
     return (String) getProperty(idPropDef);
@@ -175,6 +376,13 @@ public class UxmlElement extends EventNotifier {
     return bindings;
   }
 
+  /**
+   * Returns binding collection or null if no bindings were added.
+   */
+  List<PropertyBinding> getBindingsIfCreated() {
+    return bindings;
+  }
+
   /**
    * Animates a property values to targetValue and calls callback when done.
    */
@@ -210,4 +418,14 @@ public class UxmlElement extends EventNotifier {
     }
     return false;
   }
+
+  /**
+   * Inherited value of a property resolved from ancestors.
+   */
+  private static final class InheritedValue {
+    /** Value of closest ancestor that sets the property explicitly. */
+    Object value;
+    /** False if no ancestor sets the property. */
+    boolean explicit;
+  }
 }
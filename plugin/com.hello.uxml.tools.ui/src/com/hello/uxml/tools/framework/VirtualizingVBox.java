@@ -0,0 +1,363 @@
+package com.hello.uxml.tools.framework;
+
+import com.hello.uxml.tools.framework.events.EventArgs;
+import com.hello.uxml.tools.framework.events.EventHandler;
+import com.hello.uxml.tools.framework.events.EventNotifier;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implements a vertical items container that only creates elements for the
+ * items visible in the viewport of an enclosing ScrollBox.
+ *
+ * <p>Elements are realized for the visible range plus overscan items before
+ * and after it. Elements that scroll out of the range are kept in a pool and
+ * reused for items that scroll in. Items that are not realized are assumed
+ * to be as tall as the average realized item, which gives the total extent
+ * reported to the scrollbox.
+ *
+ * @author ferhat
+ */
+public class VirtualizingVBox extends UIElementContainer {
+
+  /** Item height used before any item has been measured. */
+  private static final double DEFAULT_ITEM_EXTENT = 20.0;
+
+  /** Number of items realized when there is no viewport to fill. */
+  private static final int DEFAULT_PAGE_SIZE = 32;
+
+  /** Container that generates elements for items. */
+  private ItemsContainer owner;
+
+  /** Items of realized elements, parallel to childElements. */
+  private List<Object> realizedItems = new ArrayList<Object>();
+
+  /** Items index of first realized element. */
+  private int firstRealizedIndex;
+
+  /** Vertical position of first realized element. */
+  private double realizedTop;
+
+  /** Detached elements that can be reused for other items. */
+  private List<UIElement> recyclePool = new ArrayList<UIElement>();
+
+  /** Average height of realized items. */
+  private double itemExtent = DEFAULT_ITEM_EXTENT;
+
+  /** Number of items to realize outside viewport on each side. */
+  private int overscan = ItemsContainer.DEFAULT_OVERSCAN;
+
+  /** Enclosing scrollbox the viewport is read from. */
+  private ScrollBox scrollHost;
+  private EventHandler scrollListener;
+
+  /** Number of elements created and reused since creation. */
+  private int createCount;
+  private int reuseCount;
+
+  /**
+   * Constructor.
+   */
+  public VirtualizingVBox() {
+    childElements = new ArrayList<UIElement>();
+    scrollListener = new EventHandler() {
+      @Override
+      public void handleEvent(EventNotifier targetObject, EventArgs e) {
+        invalidateSize();
+        invalidateLayout();
+      }
+    };
+  }
+
+  /**
+   * Sets items container that generates elements.
+   */
+  void setOwner(ItemsContainer owner) {
+    if (this.owner != owner) {
+      reset();
+      this.owner = owner;
+    }
+  }
+
+  /**
+   * Sets/returns number of items realized before and after viewport.
+   */
+  public void setOverscan(int value) {
+    if (value < 0) {
+      value = 0;
+    }
+    if (overscan != value) {
+      overscan = value;
+      invalidateSize();
+    }
+  }
+
+  public int getOverscan() {
+    return overscan;
+  }
+
+  /**
+   * Returns items index of first realized element.
+   */
+  public int getFirstRealizedIndex() {
+    return firstRealizedIndex;
+  }
+
+  /**
+   * Returns number of realized elements.
+   */
+  public int getRealizedCount() {
+    return childElements.size();
+  }
+
+  /**
+   * Returns number of elements created for items.
+   */
+  public int getCreateCount() {
+    return createCount;
+  }
+
+  /**
+   * Returns number of times a pooled element was reused for an item.
+   */
+  public int getReuseCount() {
+    return reuseCount;
+  }
+
+  /**
+   * Returns height assumed for items that are not realized.
+   */
+  public double getItemExtent() {
+    return itemExtent;
+  }
+
+  /**
+   * Releases all realized and pooled elements. Called when items or item
+   * chrome change.
+   */
+  void reset() {
+    releaseFrom(0);
+    if (owner != null) {
+      for (int i = 0; i < recyclePool.size(); ++i) {
+        owner.recycleElement(recyclePool.get(i));
+      }
+    }
+    recyclePool.clear();
+    firstRealizedIndex = 0;
+    invalidateSize();
+    invalidateLayout();
+  }
+
+  /**
+   * Releases realized elements of items starting at index after a change to
+   * the items collection. They are realized again on next measure.
+   */
+  void itemsChanged(int index) {
+    releaseFrom(index <= firstRealizedIndex ? 0 : index - firstRealizedIndex);
+    invalidateSize();
+    invalidateLayout();
+  }
+
+  @Override
+  public void addChild(UIElement child) {
+    throw new UnsupportedOperationException("Children are generated from items");
+  }
+
+  @Override
+  public void insertChild(int index, UIElement child) {
+    throw new UnsupportedOperationException("Children are generated from items");
+  }
+
+  @Override
+  public void removeAllChildren() {
+    reset();
+  }
+
+  @Override
+  public void close() {
+    setScrollHost(null);
+    super.close();
+  }
+
+  @Override
+  protected void onMeasure(double availableWidth, double availableHeight) {
+    Items items = (owner == null) ? null : owner.getItems();
+    int itemCount = (items == null) ? 0 : items.size();
+    if (itemCount == 0) {
+      releaseFrom(0);
+      firstRealizedIndex = 0;
+      realizedTop = 0;
+      setMeasuredDimension(0, 0);
+      return;
+    }
+
+    // Compute viewport in local coordinates.
+    setScrollHost(findScrollHost());
+    double viewTop = 0;
+    double viewHeight = 0;
+    if (scrollHost != null) {
+      viewTop = scrollHost.getScrollPointY() - scrollHost.getContentOffsetY(this);
+      viewHeight = scrollHost.getViewportHeight();
+    }
+    if (viewHeight <= 0) {
+      viewHeight = ((availableHeight > 0) && !Double.isInfinite(availableHeight)) ?
+          availableHeight : itemExtent * DEFAULT_PAGE_SIZE;
+    }
+    if (viewTop < 0) {
+      viewTop = 0;
+    }
+    double viewBottom = viewTop + viewHeight;
+
+    int first = (int) (viewTop / itemExtent) - overscan;
+    if (first > itemCount - 1) {
+      first = itemCount - 1;
+    }
+    if (first < 0) {
+      first = 0;
+    }
+
+    // Release realized elements that won't be in the new range so they can
+    // be reused for items scrolling in.
+    int lastEstimate = first + (int) Math.ceil(viewHeight / itemExtent) + (2 * overscan);
+    List<UIElement> prevElements = new ArrayList<UIElement>(childElements);
+    List<Object> prevItems = new ArrayList<Object>(realizedItems);
+    int prevFirst = firstRealizedIndex;
+    childElements.clear();
+    realizedItems.clear();
+    for (int i = 0; i < prevElements.size(); ++i) {
+      int itemIndex = prevFirst + i;
+      if ((itemIndex < first) || (itemIndex > lastEstimate) || (itemIndex >= itemCount) ||
+          (items.get(itemIndex) != prevItems.get(i))) {
+        releaseElement(prevElements.get(i), prevItems.get(i));
+        prevElements.set(i, null);
+      }
+    }
+
+    // Realize items until viewport and trailing overscan are filled.
+    firstRealizedIndex = first;
+    realizedTop = first * itemExtent;
+    double yPos = realizedTop;
+    double fillPos = realizedTop;
+    double realizedHeight = 0;
+    double maxWidth = 0;
+    int lastIndex = itemCount - 1;
+    boolean viewFilled = false;
+    for (int itemIndex = first; itemIndex <= lastIndex; ++itemIndex) {
+      Object item = items.get(itemIndex);
+      int prevIndex = itemIndex - prevFirst;
+      UIElement element = null;
+      if ((prevIndex >= 0) && (prevIndex < prevElements.size())) {
+        element = prevElements.get(prevIndex);
+        prevElements.set(prevIndex, null);
+      }
+      if (element == null) {
+        element = realizeElement(item);
+        addRawChild(element);
+      }
+      childElements.add(element);
+      realizedItems.add(item);
+      element.setProperty(ItemsContainer.isFirstPropDef, itemIndex == 0);
+      element.setProperty(ItemsContainer.isLastPropDef, itemIndex == (itemCount - 1));
+      element.measure(availableWidth, availableHeight);
+      yPos += element.getMeasuredHeight();
+      realizedHeight += element.getMeasuredHeight();
+      // Items without height still take a pixel of viewport so a collapsed
+      // range doesn't realize every item.
+      fillPos += Math.max(element.getMeasuredHeight(), 1.0);
+      if (element.getMeasuredWidth() > maxWidth) {
+        maxWidth = element.getMeasuredWidth();
+      }
+      if ((fillPos >= viewBottom) && !viewFilled) {
+        viewFilled = true;
+        lastIndex = Math.min(itemIndex + overscan, itemCount - 1);
+      }
+    }
+
+    // Release elements realized in previous pass that were not reused.
+    for (int i = 0; i < prevElements.size(); ++i) {
+      if (prevElements.get(i) != null) {
+        releaseElement(prevElements.get(i), prevItems.get(i));
+      }
+    }
+
+    int realizedCount = childElements.size();
+    itemExtent = (realizedHeight > 0) ? (realizedHeight / realizedCount) : DEFAULT_ITEM_EXTENT;
+    double extent = yPos + ((itemCount - first - realizedCount) * itemExtent);
+    setMeasuredDimension(maxWidth, extent);
+  }
+
+  @Override
+  protected void onLayout(Rectangle layoutRect) {
+    double yPos = realizedTop;
+    int childCount = childElements.size();
+    for (int childIndex = 0; childIndex < childCount; ++childIndex) {
+      UIElement child = childElements.get(childIndex);
+      double height = child.getMeasuredHeight();
+      child.layout(new Rectangle(0, yPos, layoutRect.width, height));
+      yPos += height;
+    }
+  }
+
+  /**
+   * Returns element for item, reusing a pooled element if possible.
+   */
+  private UIElement realizeElement(Object item) {
+    if (!(item instanceof UIElement)) {
+      for (int i = recyclePool.size() - 1; i >= 0; --i) {
+        UIElement recycled = recyclePool.get(i);
+        if (owner.reuseElement(recycled, item)) {
+          recyclePool.remove(i);
+          ++reuseCount;
+          return recycled;
+        }
+      }
+    }
+    ++createCount;
+    return owner.generateElement(item);
+  }
+
+  /**
+   * Detaches element of item and pools it if it is not the item itself.
+   */
+  private void releaseElement(UIElement element, Object item) {
+    removeRawChild(element);
+    if (element != item) {
+      recyclePool.add(element);
+    }
+  }
+
+  /**
+   * Releases realized elements starting at child index.
+   */
+  private void releaseFrom(int childIndex) {
+    for (int i = childElements.size() - 1; i >= childIndex; --i) {
+      UIElement element = childElements.remove(i);
+      releaseElement(element, realizedItems.remove(i));
+    }
+  }
+
+  private ScrollBox findScrollHost() {
+    UIElement element = getParent();
+    while (element != null) {
+      if (element instanceof ScrollBox) {
+        return (ScrollBox) element;
+      }
+      element = element.getParent();
+    }
+    return null;
+  }
+
+  private void setScrollHost(ScrollBox host) {
+    if (scrollHost == host) {
+      return;
+    }
+    if (scrollHost != null) {
+      scrollHost.removeListener(ScrollBox.scrollPointYPropDef, scrollListener);
+    }
+    scrollHost = host;
+    if (scrollHost != null) {
+      scrollHost.addListener(ScrollBox.scrollPointYPropDef, scrollListener);
+    }
+  }
+}
@@ -8,5 +8,7 @@ package com.hello.uxml.tools.framework.events;
 public enum ChangeType {
   Add,
   Remove,
-  Modify
+  Modify,
+  /** Collection changed in ways a single range can't describe. */
+  Reset
 }
@@ -19,7 +19,10 @@ public class CollectionChangedEvent extends EventArgs{
   /** The index in the collection that changed. */
   private int index;
 
-  /** The number of items that changed starting at index. */
+  /**
+   * The number of items that changed starting at index. For reset events
+   * the size of the collection.
+   */
   private int count;
 
   /**
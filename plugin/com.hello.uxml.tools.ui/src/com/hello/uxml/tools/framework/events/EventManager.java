@@ -4,19 +4,60 @@ import com.hello.uxml.tools.framework.Application;
 import com.hello.uxml.tools.framework.UxmlElement;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manages event registration.
  *
+ * <p>Events are indexed by owner type when they are registered. Queries for
+ * a class combine the entries of its supertypes once and cache the result.
+ *
  * @author ferhat@
  */
 public class EventManager {
 
   /**
-   * Global event list.
+   * Maps an owner type to events registered for it. Events are registered
+   * from static initializers that may run on any thread.
    */
-  private static List<EventDefinition> eventList = new ArrayList<EventDefinition>();
+  private static ConcurrentHashMap<Class<?>, CopyOnWriteArrayList<EventDefinition>> ownEvents =
+      new ConcurrentHashMap<Class<?>, CopyOnWriteArrayList<EventDefinition>>();
+
+  /** Registration order of events. */
+  private static ConcurrentHashMap<EventDefinition, Integer> eventOrder =
+      new ConcurrentHashMap<EventDefinition, Integer>();
+
+  private static AtomicInteger eventCounter = new AtomicInteger();
+
+  /**
+   * Incremented when an event is registered. Snapshots of older versions are
+   * rebuilt on access.
+   */
+  private static AtomicInteger version = new AtomicInteger();
+
+  /**
+   * Caches immutable event list and name table of each queried class.
+   */
+  private static ConcurrentHashMap<Class<?>, ClassSnapshot> classSnapshots =
+      new ConcurrentHashMap<Class<?>, ClassSnapshot>();
+
+  /** Orders events by registration. */
+  private static final Comparator<EventDefinition> REGISTRATION_ORDER =
+      new Comparator<EventDefinition>() {
+        @Override
+        public int compare(EventDefinition a, EventDefinition b) {
+          return eventOrder.get(a).compareTo(eventOrder.get(b));
+        }
+      };
 
   /**
    * Constructor.
@@ -45,32 +86,93 @@ public class EventManager {
     if ((handlerType != null) && (handler != null)) {
       eventDef.addHandler(handlerType, handler);
     }
-    eventList.add(eventDef);
+    eventOrder.put(eventDef, eventCounter.getAndIncrement());
+    CopyOnWriteArrayList<EventDefinition> typeEvents = ownEvents.get(ownerType);
+    if (typeEvents == null) {
+      typeEvents = new CopyOnWriteArrayList<EventDefinition>();
+      CopyOnWriteArrayList<EventDefinition> existing = ownEvents.putIfAbsent(ownerType,
+          typeEvents);
+      if (existing != null) {
+        typeEvents = existing;
+      }
+    }
+    typeEvents.add(eventDef);
+    version.incrementAndGet();
     return eventDef;
   }
 
   /**
-   * Get all the property definitions for a class.
+   * Get all the event definitions for a class.
+   *
+   * <p>Returns an immutable snapshot in registration order that is shared by
+   * callers.
    */
   public static List<EventDefinition> getEventDefinitions(
       Class<? extends UxmlElement>ownerClass) {
-    Application.getCurrent().verifyClassLoaded(ownerClass);
+    return getSnapshot(ownerClass).events;
+  }
+
+  /**
+   * Returns event definition of a class by name or null if not found. Name
+   * comparison ignores case.
+   */
+  public static EventDefinition getEventDefinition(Class<? extends UxmlElement> ownerClass,
+      String eventName) {
+    ClassSnapshot snapshot = getSnapshot(ownerClass);
+    EventDefinition eventDef = snapshot.eventNames.get(eventName);
+    return (eventDef != null) ? eventDef : snapshot.eventNames.get(eventName.toLowerCase());
+  }
 
-    // Create list of properties. ! not using Lists.newArrayList on purpose
+  private static ClassSnapshot getSnapshot(Class<? extends UxmlElement> ownerClass) {
+    ClassSnapshot snapshot = classSnapshots.get(ownerClass);
+    if ((snapshot != null) && (snapshot.version == version.get())) {
+      return snapshot;
+    }
+    Application.getCurrent().verifyClassLoaded(ownerClass);
+    int currentVersion = version.get();
     ArrayList<EventDefinition> list = new ArrayList<EventDefinition>();
-    for (EventDefinition eventDef : eventList) {
-      if (eventDef.getOwnerType().isAssignableFrom(ownerClass)) {
-        list.add(eventDef);
+    addEvents(ownerClass, list, new HashSet<Class<?>>());
+    Collections.sort(list, REGISTRATION_ORDER);
+    snapshot = new ClassSnapshot(currentVersion, Collections.unmodifiableList(list));
+    classSnapshots.put(ownerClass, snapshot);
+    return snapshot;
+  }
+
+  /**
+   * Adds events owned by type and its superclasses and interfaces to list.
+   */
+  private static void addEvents(Class<?> type, List<EventDefinition> list,
+      Set<Class<?>> visited) {
+    for (Class<?> cls = type; cls != null; cls = cls.getSuperclass()) {
+      if (!visited.add(cls)) {
+        return;
       }
-      Class<?> cls = ownerClass;
-      Class<?> eventOwnerClass = eventDef.getOwnerType();
-      while (cls != null) {
-        if (cls == eventOwnerClass) {
-          list.add(eventDef);
-        }
-        cls = cls.getSuperclass();
+      List<EventDefinition> typeEvents = ownEvents.get(cls);
+      if (typeEvents != null) {
+        list.addAll(typeEvents);
+      }
+      for (Class<?> interfaceType : cls.getInterfaces()) {
+        addEvents(interfaceType, list, visited);
+      }
+    }
+  }
+
+  /**
+   * Holds event list and lower case name table of a class at a registry
+   * version. Immutable after construction.
+   */
+  private static class ClassSnapshot {
+    final int version;
+    final List<EventDefinition> events;
+    final Map<String, EventDefinition> eventNames;
+
+    ClassSnapshot(int version, List<EventDefinition> events) {
+      this.version = version;
+      this.events = events;
+      eventNames = new HashMap<String, EventDefinition>(events.size() * 2);
+      for (EventDefinition eventDef : events) {
+        eventNames.put(eventDef.getName().toLowerCase(), eventDef);
       }
     }
-    return list;
   }
 }
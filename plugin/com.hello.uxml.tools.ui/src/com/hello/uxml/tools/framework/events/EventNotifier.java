@@ -1,20 +1,42 @@
 package com.hello.uxml.tools.framework.events;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
  * Defines an event notification class. It allows adding and removing event
  * listeners.
  *
+ * <p>Handler lists are copied on add and remove, so notification iterates a
+ * plain array without allocating. Handlers may add or remove listeners
+ * while being notified. Changes take effect with the next notification.
+ *
+ * <p>Most elements have no listeners or listen to a few event types, so
+ * storage is allocated on the first addListener and the first few types are
+ * kept in small inline arrays. A hash map is only used once a notifier has
+ * listeners for more types.
+ *
  * @author ferhat@(Ferhat Buyukkokten)
  */
 public class EventNotifier extends Object {
 
-  /** Hash map of event listeners by event type. */
-  private Map<Object, List<EventHandler>> listeners = new HashMap<Object, List<EventHandler>>();
+  /** Number of event types stored inline before promoting to a map. */
+  private static final int INLINE_TYPE_LIMIT = 4;
+
+  /**
+   * Event types with listeners, allocated on first addListener. Unused once
+   * listeners are promoted to listenerMap.
+   */
+  private Object[] inlineTypes;
+
+  /** Handler arrays of inlineTypes. */
+  private EventHandler[][] inlineHandlers;
+
+  /** Number of used entries in inlineTypes. */
+  private int inlineCount;
+
+  /** Hash map of event listener arrays by event type for notifiers with many types. */
+  private Map<Object, EventHandler[]> listenerMap;
 
   /**
    * Constructor.
@@ -29,14 +51,18 @@ public class EventNotifier extends Object {
    * @param listener The function that gets called.
    */
   public void addListener(Object type, EventHandler listener) {
-    List<EventHandler> handlerList = listeners.get(type);
-    if (handlerList == null) {
-      handlerList = new ArrayList<EventHandler>();
-      listeners.put(type, handlerList);
+    EventHandler[] handlers = getHandlers(type);
+    if (handlers == null) {
+      setHandlers(type, new EventHandler[] {listener});
+      return;
     }
-    if (!handlerList.contains(listener)) {
-      handlerList.add(listener);
+    if (indexOf(handlers, listener) != -1) {
+      return;
     }
+    EventHandler[] newHandlers = new EventHandler[handlers.length + 1];
+    System.arraycopy(handlers, 0, newHandlers, 0, handlers.length);
+    newHandlers[handlers.length] = listener;
+    setHandlers(type, newHandlers);
   }
 
   /**
@@ -46,16 +72,27 @@ public class EventNotifier extends Object {
    * @param listener The function that gets called.
    */
   public void removeListener(Object type, EventHandler listener) {
-    List<EventHandler> handlerList = listeners.get(type);
-    if (handlerList == null) {
+    EventHandler[] handlers = getHandlers(type);
+    if (handlers == null) {
+      return;
+    }
+    int index = indexOf(handlers, listener);
+    if (index == -1) {
+      return;
+    }
+    if (handlers.length == 1) {
+      setHandlers(type, null);
       return;
     }
-    handlerList.remove(listener);
+    EventHandler[] newHandlers = new EventHandler[handlers.length - 1];
+    System.arraycopy(handlers, 0, newHandlers, 0, index);
+    System.arraycopy(handlers, index + 1, newHandlers, index, newHandlers.length - index);
+    setHandlers(type, newHandlers);
   }
 
   /** Checks if there are listeners for a type of event. */
   public boolean hasListener(Object type) {
-    return (listeners.get(type) != null);
+    return getHandlers(type) != null;
   }
 
   /**
@@ -65,13 +102,124 @@ public class EventNotifier extends Object {
    * @param event The event object that is sent to all listeners.
    */
   public void notifyListeners(Object type, EventArgs event) {
-    List<EventHandler> handlerList = listeners.get(type);
-    if (handlerList == null) {
+    EventHandler[] handlers = getHandlers(type);
+    if (handlers == null) {
       return;
     }
-    for (EventHandler handler : handlerList) {
-      handler.handleEvent(this, event);
+    for (int i = 0; i < handlers.length; ++i) {
+      handlers[i].handleEvent(this, event);
     }
   }
-}
 
+  /**
+   * Returns number of listeners for a type of event.
+   */
+  public int getListenerCount(Object type) {
+    EventHandler[] handlers = getHandlers(type);
+    return (handlers == null) ? 0 : handlers.length;
+  }
+
+  /**
+   * Returns number of event types that have listeners.
+   */
+  public int getListenerTypeCount() {
+    return (listenerMap != null) ? listenerMap.size() : inlineCount;
+  }
+
+  /**
+   * Adds number of listeners of each event type to counts. Used to measure
+   * listener density across notifiers.
+   */
+  public void collectListenerCounts(Map<Object, Integer> counts) {
+    if (listenerMap != null) {
+      for (Map.Entry<Object, EventHandler[]> entry : listenerMap.entrySet()) {
+        addCount(counts, entry.getKey(), entry.getValue().length);
+      }
+    } else {
+      for (int i = 0; i < inlineCount; ++i) {
+        addCount(counts, inlineTypes[i], inlineHandlers[i].length);
+      }
+    }
+  }
+
+  private static void addCount(Map<Object, Integer> counts, Object type, int count) {
+    Integer current = counts.get(type);
+    counts.put(type, (current == null) ? count : current + count);
+  }
+
+  /**
+   * Returns handlers of type or null if type has no listeners.
+   */
+  private EventHandler[] getHandlers(Object type) {
+    if (listenerMap != null) {
+      return listenerMap.get(type);
+    }
+    for (int i = 0; i < inlineCount; ++i) {
+      Object inlineType = inlineTypes[i];
+      if ((inlineType == type) || inlineType.equals(type)) {
+        return inlineHandlers[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Replaces handlers of type. Removes type if handlers is null.
+   */
+  private void setHandlers(Object type, EventHandler[] handlers) {
+    if (listenerMap != null) {
+      if (handlers == null) {
+        listenerMap.remove(type);
+      } else {
+        listenerMap.put(type, handlers);
+      }
+      return;
+    }
+    for (int i = 0; i < inlineCount; ++i) {
+      Object inlineType = inlineTypes[i];
+      if ((inlineType == type) || inlineType.equals(type)) {
+        if (handlers != null) {
+          inlineHandlers[i] = handlers;
+        } else {
+          // Move last entry into removed slot.
+          --inlineCount;
+          inlineTypes[i] = inlineTypes[inlineCount];
+          inlineHandlers[i] = inlineHandlers[inlineCount];
+          inlineTypes[inlineCount] = null;
+          inlineHandlers[inlineCount] = null;
+        }
+        return;
+      }
+    }
+    if (handlers == null) {
+      return;
+    }
+    if (inlineCount == INLINE_TYPE_LIMIT) {
+      listenerMap = new HashMap<Object, EventHandler[]>();
+      for (int i = 0; i < inlineCount; ++i) {
+        listenerMap.put(inlineTypes[i], inlineHandlers[i]);
+      }
+      listenerMap.put(type, handlers);
+      inlineTypes = null;
+      inlineHandlers = null;
+      inlineCount = 0;
+      return;
+    }
+    if (inlineTypes == null) {
+      inlineTypes = new Object[INLINE_TYPE_LIMIT];
+      inlineHandlers = new EventHandler[INLINE_TYPE_LIMIT][];
+    }
+    inlineTypes[inlineCount] = type;
+    inlineHandlers[inlineCount] = handlers;
+    ++inlineCount;
+  }
+
+  private static int indexOf(EventHandler[] handlers, EventHandler listener) {
+    for (int i = 0; i < handlers.length; ++i) {
+      if (handlers[i].equals(listener)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -126,6 +126,12 @@ public interface UISurface {
    */
   void setOpacity(double opacity);
 
+  /**
+   * Sets if surface and children are rendered into a cached bitmap that is
+   * reused until they change.
+   */
+  void setCacheAsBitmap(boolean value);
+
   /**
    * Sets blend mode of surface.
    */
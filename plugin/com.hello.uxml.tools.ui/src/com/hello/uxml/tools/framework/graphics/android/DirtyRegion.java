@@ -0,0 +1,135 @@
+package com.hello.uxml.tools.framework.graphics.android;
+
+import com.google.common.collect.Lists;
+import com.hello.uxml.tools.framework.Rectangle;
+
+import java.util.List;
+
+/**
+ * Accumulates damaged areas of a surface tree between repaints.
+ *
+ * <p>Keeps a few separate rectangles so two small updates far apart don't
+ * repaint the area between them. When more rectangles are added they are
+ * merged into their bounds. Android views repaint the bounds of all areas
+ * invalidated in a frame, so the root view rejects surfaces against the
+ * canvas clip bounds instead.
+ *
+ * @author ferhat
+ */
+public class DirtyRegion {
+
+  /** Maximum number of separate rectangles tracked. */
+  static final int MAX_RECTS = 4;
+
+  /** Damaged rectangles in root coordinates. */
+  private List<Rectangle> rects = Lists.newArrayList();
+
+  /** Set when whole surface tree is damaged. */
+  private boolean fullyDamaged;
+
+  /**
+   * Adds a damaged rectangle.
+   */
+  public void add(double x, double y, double width, double height) {
+    if (fullyDamaged || (width <= 0) || (height <= 0)) {
+      return;
+    }
+    Rectangle rect = new Rectangle(x, y, width, height);
+
+    // Merge with rectangles it touches, repeat since the union can touch
+    // rectangles the original didn't.
+    boolean merged = true;
+    while (merged) {
+      merged = false;
+      for (int i = rects.size() - 1; i >= 0; --i) {
+        Rectangle existing = rects.get(i);
+        if (intersects(existing, rect.x, rect.y, rect.width, rect.height)) {
+          rect.add(existing);
+          rects.remove(i);
+          merged = true;
+        }
+      }
+    }
+    if (rects.size() == MAX_RECTS) {
+      for (Rectangle existing : rects) {
+        rect.add(existing);
+      }
+      rects.clear();
+    }
+    rects.add(rect);
+  }
+
+  /**
+   * Marks whole surface tree as damaged.
+   */
+  public void addAll() {
+    fullyDamaged = true;
+    rects.clear();
+  }
+
+  /**
+   * Returns true if nothing is damaged.
+   */
+  public boolean isEmpty() {
+    return !fullyDamaged && rects.isEmpty();
+  }
+
+  /**
+   * Returns true if whole surface tree is damaged.
+   */
+  public boolean isFullyDamaged() {
+    return fullyDamaged;
+  }
+
+  /**
+   * Returns true if rectangle overlaps damaged area.
+   */
+  public boolean intersects(double x, double y, double width, double height) {
+    if (fullyDamaged) {
+      return true;
+    }
+    for (int i = 0; i < rects.size(); ++i) {
+      if (intersects(rects.get(i), x, y, width, height)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns number of separate damaged rectangles.
+   */
+  public int getRectCount() {
+    return rects.size();
+  }
+
+  /**
+   * Returns bounds of damaged area or null if nothing is damaged. Returns
+   * null if whole tree is damaged, check isFullyDamaged first.
+   */
+  public Rectangle getBounds() {
+    if (rects.isEmpty()) {
+      return null;
+    }
+    Rectangle bounds = new Rectangle(rects.get(0).x, rects.get(0).y, rects.get(0).width,
+        rects.get(0).height);
+    for (int i = 1; i < rects.size(); ++i) {
+      bounds.add(rects.get(i));
+    }
+    return bounds;
+  }
+
+  /**
+   * Clears damaged area after a repaint.
+   */
+  public void clear() {
+    fullyDamaged = false;
+    rects.clear();
+  }
+
+  private static boolean intersects(Rectangle rect, double x, double y, double width,
+      double height) {
+    return (x < rect.getRight()) && ((x + width) > rect.x) && (y < rect.getBottom()) &&
+        ((y + height) > rect.y);
+  }
+}
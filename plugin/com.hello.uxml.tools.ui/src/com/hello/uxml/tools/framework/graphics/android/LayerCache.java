@@ -0,0 +1,202 @@
+package com.hello.uxml.tools.framework.graphics.android;
+
+import android.graphics.Bitmap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds offscreen bitmaps of surfaces that cache their subtree.
+ *
+ * <p>Layers are kept in least recently painted order. When the total size of
+ * layer bitmaps goes over the budget, least recently painted layers are
+ * evicted and their surfaces render into a new bitmap next time they paint.
+ *
+ * @author ferhat
+ */
+public class LayerCache {
+
+  /** Default budget for layer bitmaps in bytes. */
+  public static final int DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+  /** Bytes per pixel of ARGB_8888 layer bitmaps. */
+  static final int BYTES_PER_PIXEL = 4;
+
+  /** Layers in least recently painted order. */
+  private LinkedHashMap<UISurfaceImpl, Layer> layers =
+      new LinkedHashMap<UISurfaceImpl, Layer>(16, 0.75f, true);
+
+  /** Maximum and current total size of layer bitmaps. */
+  private int maxBytes;
+  private int byteCount;
+
+  /** Number of layers reused, rendered and evicted. */
+  private int hitCount;
+  private int renderCount;
+  private int evictionCount;
+
+  /**
+   * Constructor.
+   */
+  public LayerCache() {
+    this(DEFAULT_MAX_BYTES);
+  }
+
+  /**
+   * Constructor with byte budget.
+   */
+  public LayerCache(int maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Sets/returns maximum total size of layer bitmaps in bytes.
+   */
+  public void setMaxBytes(int value) {
+    maxBytes = value;
+    trim(maxBytes);
+  }
+
+  public int getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * Returns total size of cached layer bitmaps in bytes.
+   */
+  public int getByteCount() {
+    return byteCount;
+  }
+
+  /**
+   * Returns number of cached layers.
+   */
+  public int getLayerCount() {
+    return layers.size();
+  }
+
+  /**
+   * Returns number of times a cached layer was painted without rendering.
+   */
+  public int getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns number of times a layer was rendered.
+   */
+  public int getRenderCount() {
+    return renderCount;
+  }
+
+  /**
+   * Returns number of layers evicted to stay in budget.
+   */
+  public int getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Returns layer of surface if it is cached and matches size, marking it
+   * as most recently painted. A layer of a different size is dropped.
+   */
+  Layer get(UISurfaceImpl surface, int width, int height) {
+    Layer layer = layers.get(surface);
+    if (layer == null) {
+      return null;
+    }
+    if ((layer.width != width) || (layer.height != height)) {
+      remove(surface);
+      return null;
+    }
+    return layer;
+  }
+
+  /**
+   * Creates a layer for surface, evicting older layers to make room.
+   * Returns null if layer is larger than budget. The bitmap is only
+   * allocated if createBitmap is true so headless contexts can account for
+   * layers without drawing.
+   */
+  Layer create(UISurfaceImpl surface, int width, int height, boolean createBitmap) {
+    remove(surface);
+    // Size of large layers overflows int, layers within budget don't.
+    long bytes = (long) width * height * BYTES_PER_PIXEL;
+    if ((width <= 0) || (height <= 0) || (bytes > maxBytes)) {
+      return null;
+    }
+    trim(maxBytes - (int) bytes);
+    Layer layer = new Layer(width, height, createBitmap ? Bitmap.createBitmap(width, height,
+        Bitmap.Config.ARGB_8888) : null);
+    layers.put(surface, layer);
+    byteCount += (int) bytes;
+    return layer;
+  }
+
+  /**
+   * Drops layer of surface and releases its bitmap.
+   */
+  void remove(UISurfaceImpl surface) {
+    Layer layer = layers.remove(surface);
+    if (layer != null) {
+      release(layer);
+    }
+  }
+
+  /**
+   * Drops all layers.
+   */
+  public void clear() {
+    for (Layer layer : layers.values()) {
+      release(layer);
+    }
+    layers.clear();
+  }
+
+  /** Counts a layer painted from cache. */
+  void layerHit() {
+    ++hitCount;
+  }
+
+  /** Counts a layer rendered. */
+  void layerRendered() {
+    ++renderCount;
+  }
+
+  /**
+   * Evicts least recently painted layers until total size is at most
+   * targetBytes.
+   */
+  private void trim(int targetBytes) {
+    Iterator<Map.Entry<UISurfaceImpl, Layer>> iter = layers.entrySet().iterator();
+    while ((byteCount > targetBytes) && iter.hasNext()) {
+      Layer layer = iter.next().getValue();
+      iter.remove();
+      release(layer);
+      ++evictionCount;
+    }
+  }
+
+  private void release(Layer layer) {
+    byteCount -= layer.width * layer.height * BYTES_PER_PIXEL;
+    if (layer.bitmap != null) {
+      layer.bitmap.recycle();
+    }
+  }
+
+  /**
+   * Holds rendered bitmap of a surface subtree.
+   */
+  static class Layer {
+    final int width;
+    final int height;
+    final Bitmap bitmap;
+
+    Layer(int width, int height, Bitmap bitmap) {
+      this.width = width;
+      this.height = height;
+      this.bitmap = bitmap;
+    }
+  }
+}
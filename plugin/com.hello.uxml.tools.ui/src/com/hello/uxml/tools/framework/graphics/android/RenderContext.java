@@ -17,6 +17,14 @@ import android.graphics.Shader.TileMode;
 /**
  * Provides easy to use, persistent brush pen to GC mapping.
  *
+ * <p>Tracks translation from root so surfaces outside the damaged area can
+ * be skipped, and counts surfaces and render items painted in a frame. A
+ * headless context has no canvas, it walks the surface tree and counts
+ * without drawing.
+ *
+ * <p>Surfaces that cache their subtree keep their layer bitmaps in the layer
+ * cache of the context.
+ *
  * @author ferhat
  */
 public class RenderContext {
@@ -27,13 +35,150 @@ public class RenderContext {
   /** Shared paint object */
   private Paint paint;
 
+  /** Damaged area in root coordinates or null to paint everything. */
+  private DirtyRegion dirtyRegion;
+
+  /** Cache of surface layer bitmaps or null if layers are disabled. */
+  private LayerCache layerCache;
+
+  /** Translation of current surface from root. */
+  private double offsetX;
+  private double offsetY;
+
+  /** Number of surfaces and render items painted and surfaces skipped. */
+  private int surfaceCount;
+  private int renderItemCount;
+  private int rejectedSurfaceCount;
+
   /**
    * Constructor.
    */
   public RenderContext(Canvas canvas) {
+    this(canvas, null);
+  }
+
+  /**
+   * Constructor for painting damaged area only.
+   */
+  public RenderContext(Canvas canvas, DirtyRegion dirtyRegion) {
+    this(canvas, dirtyRegion, null);
+  }
+
+  /**
+   * Constructor for painting damaged area with cached layers.
+   */
+  public RenderContext(Canvas canvas, DirtyRegion dirtyRegion, LayerCache layerCache) {
     this.canvas = canvas;
-    paint = new Paint();
-    paint.setAntiAlias(true);
+    this.dirtyRegion = dirtyRegion;
+    this.layerCache = layerCache;
+    if (canvas != null) {
+      paint = new Paint();
+      paint.setAntiAlias(true);
+    }
+  }
+
+  /**
+   * Creates a context that walks surfaces without drawing.
+   */
+  public static RenderContext createHeadless(DirtyRegion dirtyRegion) {
+    return new RenderContext(null, dirtyRegion);
+  }
+
+  /**
+   * Creates a context that walks surfaces with cached layers without drawing.
+   */
+  public static RenderContext createHeadless(DirtyRegion dirtyRegion, LayerCache layerCache) {
+    return new RenderContext(null, dirtyRegion, layerCache);
+  }
+
+  /**
+   * Returns layer cache or null if layers are disabled.
+   */
+  public LayerCache getLayerCache() {
+    return layerCache;
+  }
+
+  /**
+   * Creates a context that renders into a layer bitmap. Layer is cleared
+   * and rendered whole. Returns a headless context if bitmap is null.
+   */
+  RenderContext createLayerContext(Bitmap bitmap) {
+    if (bitmap == null) {
+      return new RenderContext(null, null, layerCache);
+    }
+    bitmap.eraseColor(0);
+    return new RenderContext(new Canvas(bitmap), null, layerCache);
+  }
+
+  /**
+   * Adds counts of a layer context to this context.
+   */
+  void addCounts(RenderContext layerContext) {
+    surfaceCount += layerContext.surfaceCount;
+    renderItemCount += layerContext.renderItemCount;
+    rejectedSurfaceCount += layerContext.rejectedSurfaceCount;
+  }
+
+  /**
+   * Returns true if context has no canvas to draw to.
+   */
+  public boolean isHeadless() {
+    return canvas == null;
+  }
+
+  /**
+   * Moves origin of canvas.
+   */
+  public void translate(double dx, double dy) {
+    offsetX += dx;
+    offsetY += dy;
+    if (canvas != null) {
+      canvas.translate((float) dx, (float) dy);
+    }
+  }
+
+  /**
+   * Returns true if rectangle in current coordinates overlaps damaged area.
+   */
+  public boolean isDamaged(double x, double y, double width, double height) {
+    return (dirtyRegion == null) || dirtyRegion.intersects(offsetX + x, offsetY + y, width,
+        height);
+  }
+
+  /** Counts a painted surface. */
+  void surfacePainted() {
+    ++surfaceCount;
+  }
+
+  /** Counts a surface skipped since it is outside damaged area. */
+  void surfaceRejected() {
+    ++rejectedSurfaceCount;
+  }
+
+  /** Counts a painted render item. */
+  void renderItemPainted() {
+    ++renderItemCount;
+  }
+
+  /**
+   * Returns number of surfaces painted.
+   */
+  public int getSurfaceCount() {
+    return surfaceCount;
+  }
+
+  /**
+   * Returns number of render items painted.
+   */
+  public int getRenderItemCount() {
+    return renderItemCount;
+  }
+
+  /**
+   * Returns number of surfaces skipped since they were outside damaged area.
+   */
+  public int getRejectedSurfaceCount() {
+    return rejectedSurfaceCount;
   }
 
   /**
@@ -90,7 +235,48 @@ public class RenderContext {
   }
 
   public void drawImage(Bitmap bitmap, double x, double y) {
+    if (canvas == null) {
+      return;
+    }
     canvas.drawBitmap(bitmap, (float) x, (float) y, paint);
   }
 
+  /**
+   * Composites a layer bitmap with opacity.
+   */
+  void drawLayer(Bitmap bitmap, double x, double y, double opacity) {
+    if ((canvas == null) || (bitmap == null)) {
+      return;
+    }
+    paint.setShader(null);
+    paint.setAlpha(toAlpha(opacity));
+    canvas.drawBitmap(bitmap, (float) x, (float) y, paint);
+    paint.setAlpha(255);
+  }
+
+  /**
+   * Redirects drawing in area to an offscreen layer that restore composites
+   * with opacity. Returns save count for restore or -1 if opacity is 1.
+   */
+  int saveOpacity(double x, double y, double width, double height, double opacity) {
+    if ((canvas == null) || (opacity >= 1.0)) {
+      return -1;
+    }
+    return canvas.saveLayerAlpha((float) x, (float) y, (float) (x + width),
+        (float) (y + height), toAlpha(opacity), Canvas.ALL_SAVE_FLAG);
+  }
+
+  /**
+   * Composites layer saved by saveOpacity.
+   */
+  void restore(int saveCount) {
+    if (saveCount != -1) {
+      canvas.restoreToCount(saveCount);
+    }
+  }
+
+  private static int toAlpha(double opacity) {
+    return (int) Math.round(Math.max(0.0, Math.min(1.0, opacity)) * 255);
+  }
+
 }
@@ -87,17 +87,13 @@ public class UIImageSurfaceImpl extends UISurfaceImpl implements UIImageSurface
   }
 
   /**
-   * Renders contents and children.
+   * Renders render list and image.
    */
   @Override
-  public void paintControl(RenderContext context) {
-    if (!visible) {
-      return;
-    }
-    if (renderList != null) {
-      super.paintControl(context);
-    }
+  protected void paintContent(RenderContext context) {
+    super.paintContent(context);
     if (deviceImage != null) {
+      context.renderItemPainted();
       context.drawImage(deviceImage, 0, 0);
     }
   }
@@ -19,6 +19,10 @@ import java.util.List;
 /**
  * Implements UISurface on android view class.
  *
+ * <p>A surface that caches as bitmap renders its subtree into a layer once
+ * and composites the layer with its opacity on later frames. Any update in
+ * the subtree invalidates the layer.
+ *
  * @author ferhat
  */
 public class UISurfaceImpl implements UISurface {
@@ -46,6 +50,21 @@ public class UISurfaceImpl implements UISurface {
   /** Surface opacity */
   private double opacity = 1.0;
 
+  /**
+   * Bounds of surface and its visible children in local coordinates or null
+   * if they need to be recomputed.
+   */
+  private Rectangle subtreeBounds;
+
+  /** Set if subtree is rendered into a cached layer. */
+  private boolean cacheAsBitmap;
+
+  /** Cache holding layer of surface or null if it has none. */
+  private LayerCache layerCache;
+
+  /** Set when cached layer matches subtree contents. */
+  private boolean layerValid;
+
   /**
    * @see UISurface
    */
@@ -70,25 +89,182 @@ public class UISurfaceImpl implements UISurface {
   }
 
   /**
-   * Renders contents and children.
+   * Renders contents and children that overlap damaged area of context.
    */
   public void paintControl(RenderContext context) {
     if (!visible) {
       return;
     }
+    if (cacheAsBitmap && (context.getLayerCache() != null) && paintLayer(context)) {
+      return;
+    }
+    Rectangle bounds = getSubtreeBounds();
+    int saveCount = context.saveOpacity(bounds.x, bounds.y, bounds.width, bounds.height,
+        opacity);
+    paintSubtree(context);
+    context.restore(saveCount);
+  }
+
+  /**
+   * Renders contents and children.
+   */
+  private void paintSubtree(RenderContext context) {
+    if (context.isDamaged(0, 0, layoutRect.width, layoutRect.height)) {
+      context.surfacePainted();
+      paintContent(context);
+    } else {
+      context.surfaceRejected();
+    }
+    if (rawChildren != null) {
+      for (int i = 0; i < rawChildren.size(); ++i) {
+        rawChildren.get(i).paintInParent(context);
+      }
+    }
+  }
+
+  /**
+   * Composites cached layer of subtree, rendering it first if it is not
+   * cached or invalid. Returns false if layer doesn't fit in cache.
+   */
+  private boolean paintLayer(RenderContext context) {
+    Rectangle bounds = getSubtreeBounds();
+    int width = (int) Math.ceil(bounds.width);
+    int height = (int) Math.ceil(bounds.height);
+    LayerCache cache = context.getLayerCache();
+    if ((layerCache != null) && (layerCache != cache)) {
+      layerCache.remove(this);
+    }
+    layerCache = cache;
+    LayerCache.Layer layer = cache.get(this, width, height);
+    if ((layer != null) && (layer.bitmap == null) && !context.isHeadless()) {
+      // Layer was accounted by a headless paint and has no pixels.
+      cache.remove(this);
+      layer = null;
+    }
+    if ((layer == null) || !layerValid) {
+      if (layer == null) {
+        layer = cache.create(this, width, height, !context.isHeadless());
+      }
+      if (layer == null) {
+        layerValid = false;
+        return false;
+      }
+      RenderContext layerContext = context.createLayerContext(layer.bitmap);
+      layerContext.translate(-bounds.x, -bounds.y);
+      paintSubtree(layerContext);
+      context.addCounts(layerContext);
+      layerContext.dispose();
+      cache.layerRendered();
+      layerValid = true;
+    } else {
+      context.surfacePainted();
+      cache.layerHit();
+    }
+    context.drawLayer(layer.bitmap, bounds.x, bounds.y, opacity);
+    return true;
+  }
+
+  /**
+   * Sets/returns if subtree is rendered into a cached layer.
+   */
+  @Override
+  public void setCacheAsBitmap(boolean value) {
+    if (cacheAsBitmap != value) {
+      cacheAsBitmap = value;
+      releaseLayer();
+      updateView();
+    }
+  }
+
+  public boolean getCacheAsBitmap() {
+    return cacheAsBitmap;
+  }
+
+  /**
+   * Releases cached layer bitmap.
+   */
+  private void releaseLayer() {
+    if (layerCache != null) {
+      layerCache.remove(this);
+      layerCache = null;
+    }
+    layerValid = false;
+  }
+
+  /**
+   * Damages area of surface without invalidating its own layer. Used when
+   * surface moves or composites differently but its contents don't change.
+   */
+  private void updateViewKeepLayer() {
+    boolean wasValid = layerValid;
+    updateView();
+    layerValid = wasValid;
+  }
+
+  /**
+   * Renders surface and children at its location in parent. Skips the
+   * subtree if it is outside damaged area.
+   */
+  public void paintInParent(RenderContext context) {
+    if (!visible) {
+      return;
+    }
+    Rectangle bounds = getSubtreeBounds();
+    if (!context.isDamaged(layoutRect.x + bounds.x, layoutRect.y + bounds.y, bounds.width,
+        bounds.height)) {
+      context.surfaceRejected();
+      return;
+    }
+    context.translate(layoutRect.x, layoutRect.y);
+    paintControl(context);
+    context.translate(-layoutRect.x, -layoutRect.y);
+  }
+
+  /**
+   * Renders contents of surface. Subclasses override to draw content that
+   * is not in render list.
+   */
+  protected void paintContent(RenderContext context) {
     if (renderList != null) {
-      for (IRenderItem item : renderList) {
-       item.draw(context);
+      for (int i = 0; i < renderList.size(); ++i) {
+        context.renderItemPainted();
+        if (!context.isHeadless()) {
+          renderList.get(i).draw(context);
+        }
       }
     }
-    if (rawChildren != null) {
-      for (UISurfaceImpl child : rawChildren) {
-        float tx = (float) child.layoutRect.x;
-        float ty = (float) child.layoutRect.y;
-        context.getCanvas().translate(tx, ty);
-        child.paintControl(context);
-        context.getCanvas().translate(-tx, -ty);
+  }
+
+  /**
+   * Returns bounds of surface and visible children in local coordinates.
+   */
+  Rectangle getSubtreeBounds() {
+    if (subtreeBounds == null) {
+      Rectangle bounds = new Rectangle(0, 0, layoutRect.width, layoutRect.height);
+      for (int i = 0; i < rawChildren.size(); ++i) {
+        UISurfaceImpl child = rawChildren.get(i);
+        if (child.visible) {
+          Rectangle childBounds = child.getSubtreeBounds();
+          bounds.add(new Rectangle(child.layoutRect.x + childBounds.x,
+              child.layoutRect.y + childBounds.y, childBounds.width, childBounds.height));
+        }
       }
+      subtreeBounds = bounds;
+    }
+    return subtreeBounds;
+  }
+
+  /**
+   * Invalidates cached bounds of surface and its ancestors.
+   */
+  private void invalidateSubtreeBounds() {
+    subtreeBounds = null;
+    UISurface ancestor = parent;
+    // Ancestors of a surface without cached bounds don't have them either.
+    while ((ancestor instanceof UISurfaceImpl) &&
+        (((UISurfaceImpl) ancestor).subtreeBounds != null)) {
+      ((UISurfaceImpl) ancestor).subtreeBounds = null;
+      ancestor = ((UISurfaceImpl) ancestor).parent;
     }
   }
 
@@ -199,6 +375,7 @@ public class UISurfaceImpl implements UISurface {
     UISurfaceImpl surface = (UISurfaceImpl) child;
     surface.parent = this;
     rawChildren.add(surface);
+    invalidateSubtreeBounds();
   }
 
   /**
@@ -206,8 +383,15 @@ public class UISurfaceImpl implements UISurface {
    */
   @Override
   public void removeChild(UISurface child) {
-    rawChildren.remove(child);
-    updateView();
+    UISurfaceImpl surface = (UISurfaceImpl) child;
+    if (rawChildren.remove(surface)) {
+      if (surface.visible) {
+        Rectangle bounds = surface.getSubtreeBounds();
+        updateView(surface.layoutRect.x + bounds.x, surface.layoutRect.y + bounds.y,
+            bounds.width, bounds.height);
+      }
+      invalidateSubtreeBounds();
+    }
   }
 
   /**
@@ -250,6 +434,7 @@ public class UISurfaceImpl implements UISurface {
   public void close() {
     clearRenderList();
     updateView();
+    releaseLayer();
     if (parent != null) {
       // prevent potentially recursive call to close by parent
       UISurface temp = parent;
@@ -297,23 +482,34 @@ public class UISurfaceImpl implements UISurface {
    */
   @Override
   public void setLayout(Rectangle layoutRectangle) {
+    if (layoutRect.equals(layoutRectangle)) {
+      return;
+    }
+    // Damage area surface is moving from and to. Cached layer is still valid
+    // if surface only moves.
+    boolean resized = (layoutRect.width != layoutRectangle.width) ||
+        (layoutRect.height != layoutRectangle.height);
+    updateViewKeepLayer();
     layoutRect.x = layoutRectangle.x;
     layoutRect.y = layoutRectangle.y;
     layoutRect.width = layoutRectangle.width;
     layoutRect.height = layoutRectangle.height;
+    invalidateSubtreeBounds();
+    if (resized) {
+      updateView();
+    } else {
+      updateViewKeepLayer();
+    }
   }
 
   /**
-   * Refreshes view contents.
+   * Refreshes view contents of surface and children.
    */
   @Override
   public void updateView() {
-    UISurface parentSurface = parent;
-    if (parentSurface != null) {
-      while (parentSurface.getParentSurface() != null) {
-        parentSurface = parentSurface.getParentSurface();
-      }
-      parentSurface.updateView();
+    if (visible && (parent != null)) {
+      Rectangle bounds = getSubtreeBounds();
+      updateView(bounds.x, bounds.y, bounds.width, bounds.height);
     }
   }
 
@@ -322,6 +518,7 @@ public class UISurfaceImpl implements UISurface {
    */
   @Override
   public void updateView(double x, double y, double width, double height) {
+    layerValid = false;
     if ((width == 0) || (height == 0)) {
       return; // nothing to update
     }
@@ -355,7 +552,10 @@ public class UISurfaceImpl implements UISurface {
    */
   @Override
   public void setOpacity(double opacity) {
-    this.opacity = opacity;
+    if (this.opacity != opacity) {
+      this.opacity = opacity;
+      updateViewKeepLayer();
+    }
   }
 
   public double getOpacity() {
@@ -368,8 +568,17 @@ public class UISurfaceImpl implements UISurface {
   @Override
   public void setVisible(boolean visible) {
     if (this.visible != visible) {
+      // Damage area while visible.
+      if (!visible) {
+        updateView();
+      }
       this.visible = visible;
-      updateView();
+      if (parent instanceof UISurfaceImpl) {
+        ((UISurfaceImpl) parent).invalidateSubtreeBounds();
+      }
+      if (visible) {
+        updateView();
+      }
     }
   }
 
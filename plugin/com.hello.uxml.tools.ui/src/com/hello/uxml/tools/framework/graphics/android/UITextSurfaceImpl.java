@@ -24,16 +24,15 @@ public class UITextSurfaceImpl extends UISurfaceImpl implements UITextSurface {
   private Rect measuredTextBounds = new Rect();
 
   /**
-   * Renders contents and children.
+   * Renders render list and text.
    */
   @Override
-  public void paintControl(RenderContext context) {
-    if (!visible) {
+  protected void paintContent(RenderContext context) {
+    super.paintContent(context);
+    context.renderItemPainted();
+    if (context.isHeadless()) {
       return;
     }
-    if (renderList != null) {
-      super.paintControl(context);
-    }
     Paint paint = context.getPaint();
     paint.setTypeface(Typeface.create(fontName, fontBold ? Typeface.BOLD : Typeface.NORMAL));
     paint.setTextSize((float) fontSize);
@@ -4,7 +4,9 @@ import com.google.common.collect.Lists;
 import com.hello.uxml.tools.framework.Application;
 import com.hello.uxml.tools.framework.BlendMode;
 import com.hello.uxml.tools.framework.BorderRadius;
+import com.hello.uxml.tools.framework.PropertyAccessor;
 import com.hello.uxml.tools.framework.Rectangle;
+import com.hello.uxml.tools.framework.ReflectivePropertyAccessor;
 import com.hello.uxml.tools.framework.UIElement;
 import com.hello.uxml.tools.framework.UpdateQueue;
 import com.hello.uxml.tools.framework.events.EventDefinition;
@@ -17,7 +19,9 @@ import com.hello.uxml.tools.framework.graphics.Path;
 import com.hello.uxml.tools.framework.graphics.Pen;
 import com.hello.uxml.tools.framework.graphics.UISurface;
 import com.hello.uxml.tools.framework.graphics.UISurfaceTarget;
+import com.hello.uxml.tools.framework.graphics.android.DirtyRegion;
 import com.hello.uxml.tools.framework.graphics.android.IRenderItem;
+import com.hello.uxml.tools.framework.graphics.android.LayerCache;
 import com.hello.uxml.tools.framework.graphics.android.RenderContext;
 import com.hello.uxml.tools.framework.graphics.android.RenderEllipse;
 import com.hello.uxml.tools.framework.graphics.android.RenderLine;
@@ -29,6 +33,7 @@ import com.hello.uxml.tools.framework.graphics.android.UISurfaceImpl;
 
 import android.app.Activity;
 import android.content.Context;
+import android.graphics.Rect;
 import android.util.DisplayMetrics;
 import android.view.MotionEvent;
 import android.view.View;
@@ -103,6 +108,25 @@ public class AndroidApplication extends Application {
     return uiSurface;
   }
 
+  /**
+   * Creates accessor that resolves getter, setter or field of key once.
+   */
+  @Override
+  protected PropertyAccessor createPropertyAccessor(Class<?> ownerClass, String keyName) {
+    return new ReflectivePropertyAccessor(ownerClass, keyName);
+  }
+
+  /**
+   * Schedules a flush on the UI thread without damaging the view. Surfaces
+   * redrawn by the flush invalidate their own areas.
+   */
+  @Override
+  protected void requestFrame() {
+    if (rootSurface != null) {
+      ((RootSurface) rootSurface).requestFrame();
+    }
+  }
+
   @Override protected void hostContent() {
     if (rootElement != null) {
       rootElement.initSurface(rootSurface);
@@ -128,6 +152,27 @@ public class AndroidApplication extends Application {
           (hostHeight - height) / 2, width, height));
   }
 
+  /**
+   * Returns number of surfaces painted in last frame.
+   */
+  public int getFrameSurfaceCount() {
+    return (rootSurface == null) ? 0 : ((RootSurface) rootSurface).frameSurfaceCount;
+  }
+
+  /**
+   * Returns number of render items painted in last frame.
+   */
+  public int getFrameRenderItemCount() {
+    return (rootSurface == null) ? 0 : ((RootSurface) rootSurface).frameRenderItemCount;
+  }
+
+  /**
+   * Returns cache of surface layer bitmaps.
+   */
+  public LayerCache getLayerCache() {
+    return (rootSurface == null) ? null : ((RootSurface) rootSurface).layerCache;
+  }
+
   /**
    * Routes mouse event. Returns true if the event was handled.
    */
@@ -158,6 +203,31 @@ public class AndroidApplication extends Application {
 
     private AndroidApplication app;
 
+    /** Area android repaints in current frame in view coordinates. */
+    private DirtyRegion repaintRegion = new DirtyRegion();
+
+    /** Clip bounds of canvas passed to onDraw. */
+    private Rect clipBounds = new Rect();
+
+    /** Layer bitmaps of surfaces that cache as bitmap. */
+    LayerCache layerCache = new LayerCache();
+
+    /** Number of surfaces and render items painted in last frame. */
+    int frameSurfaceCount;
+    int frameRenderItemCount;
+
+    /** Set while a frame requested by requestFrame is pending. */
+    private boolean framePending;
+
+    /** Runs queued updates for requestFrame. */
+    private final Runnable frameRunnable = new Runnable() {
+      @Override
+      public void run() {
+        framePending = false;
+        UpdateQueue.flush();
+      }
+    };
+
     @Override
     public void setTarget(UISurfaceTarget target) {
       uiTarget = target;
@@ -169,14 +239,27 @@ public class AndroidApplication extends Application {
       if (rawChildren == null) {
         return;
       }
-      RenderContext context = new RenderContext(canvas);
-      for (UISurfaceImpl child : rawChildren) {
-        float tx = (float) child.layoutRect.x;
-        float ty = (float) child.layoutRect.y;
-        canvas.translate(tx, ty);
-        child.paintControl(context);
-        canvas.translate(-tx, -ty);
+      // Android merges invalidated areas into one rectangle and paints the
+      // background over all of it, so only surfaces outside the clip bounds
+      // can be rejected. Hardware accelerated views are repainted whole.
+      if (!canvas.getClipBounds(clipBounds)) {
+        frameSurfaceCount = 0;
+        frameRenderItemCount = 0;
+        return;
+      }
+      boolean paintAll = isHardwareAccelerated() || ((clipBounds.left <= 0)
+          && (clipBounds.top <= 0) && (clipBounds.right >= getWidth())
+          && (clipBounds.bottom >= getHeight()));
+      repaintRegion.clear();
+      repaintRegion.add(clipBounds.left, clipBounds.top, clipBounds.width(),
+          clipBounds.height());
+      RenderContext context = new RenderContext(canvas, paintAll ? null : repaintRegion,
+          layerCache);
+      for (int i = 0; i < rawChildren.size(); ++i) {
+        rawChildren.get(i).paintInParent(context);
       }
+      frameSurfaceCount = context.getSurfaceCount();
+      frameRenderItemCount = context.getRenderItemCount();
       context.dispose();
     }
 
@@ -361,6 +444,7 @@ public class AndroidApplication extends Application {
     @Override
     public void close() {
       clearRenderList();
+      layerCache.clear();
     }
 
     /**
@@ -396,12 +480,23 @@ public class AndroidApplication extends Application {
       postInvalidate();
     }
 
+    /**
+     * Posts a flush of queued updates to the UI thread.
+     */
+    void requestFrame() {
+      if (!framePending) {
+        framePending = true;
+        post(frameRunnable);
+      }
+    }
+
     @Override
     public void updateView(double x, double y, double width, double height) {
       if ((width == 0) || (height == 0)) {
         return; // nothing to update
       }
-      postInvalidate((int) x, (int) y, (int) (width + 0.5), (int) (height + 0.5));
+      postInvalidate((int) Math.floor(x), (int) Math.floor(y), (int) Math.ceil(x + width),
+          (int) Math.ceil(y + height));
     }
 
     /**
@@ -438,6 +533,11 @@ public class AndroidApplication extends Application {
       return opacity;
     }
 
+    /** Ignored for root surface, children cache their own layers. */
+    @Override
+    public void setCacheAsBitmap(boolean value) {
+    }
+
     /** Sets visibility, ignored for root surface */
     @Override
     public void setVisible(boolean visible) {
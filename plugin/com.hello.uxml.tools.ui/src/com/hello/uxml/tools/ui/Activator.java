@@ -2,8 +2,6 @@ package com.hello.uxml.tools.ui;
 
 import com.hello.uxml.tools.core.internal.builder.CodeUpdater;
 
-import org.eclipse.core.resources.IWorkspace;
-import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
@@ -20,10 +18,7 @@ public class Activator extends AbstractUIPlugin {
   // The shared instance
   private static Activator plugin;
 
-  // Workspace of plugin
-  private IWorkspace workspace;
-
-  // Shared resource change listener
+  // Shared code updater used by project builder
   private static CodeUpdater codeUpdater;
 
   /**
@@ -40,8 +35,6 @@ public class Activator extends AbstractUIPlugin {
     super.start(context);
     plugin = this;
     codeUpdater = CodeUpdater.getDefault();
-    workspace = ResourcesPlugin.getWorkspace();
-    workspace.addResourceChangeListener(codeUpdater);
   }
 
   /*
@@ -49,11 +42,7 @@ public class Activator extends AbstractUIPlugin {
    * @see org.eclipse.ui.plugin.AbstractUIPlugin#stop(org.osgi.framework.BundleContext)
    */
   public void stop(BundleContext context) throws Exception {
-    if (workspace != null) {
-      workspace.removeResourceChangeListener(codeUpdater);
-      codeUpdater = null;
-      workspace = null;
-    }
+    codeUpdater = null;
     plugin = null;
     super.stop(context);
   }